@@ -1,8 +1,12 @@
 package com.inventory.customer.client;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
@@ -11,7 +15,22 @@ import com.inventory.customer.dto.ProductResponse;
 
 @Component
 public class RetailerClient {
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+
+    public RetailerClient(@Value("${retailer.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+                          @Value("${retailer.client.read-timeout-ms:5000}") long readTimeoutMs,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // JDK client: pooled keep-alive connections, and no blocking of carrier threads in virtual-thread mode
+        HttpClient.Builder httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (virtualThreads) {
+            httpClient.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
     
     @Value("${retailer.host:localhost}")
     private String retailerHost;
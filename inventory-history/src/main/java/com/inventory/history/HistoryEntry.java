@@ -0,0 +1,34 @@
+package com.inventory.history;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One stock movement row, as the shared history code sees it. Implemented by the history entity
+ * of each service; ownerId is the warehouse or retailer the movement belongs to.
+ */
+public interface HistoryEntry {
+
+    Long getId();
+
+    void setId(Long id);
+
+    // Idempotency key, assigned when the row is queued and unique in the history table
+    UUID getHistoryKey();
+
+    void setHistoryKey(UUID historyKey);
+
+    Long getOwnerId();
+
+    Long getProductId();
+
+    String getProductName();
+
+    String getTransactionType();
+
+    int getQuantity();
+
+    float getPriceAtTransaction();
+
+    LocalDateTime getTransactionDate();
+}
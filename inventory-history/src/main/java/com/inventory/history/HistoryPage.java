@@ -0,0 +1,9 @@
+package com.inventory.history;
+
+import java.util.List;
+
+/**
+ * One page of history, newest first. Pass nextCursor back to get the following page; null on the last page.
+ */
+public record HistoryPage<T>(List<T> items, String nextCursor) {
+}
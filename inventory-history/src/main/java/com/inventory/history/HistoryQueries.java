@@ -0,0 +1,133 @@
+package com.inventory.history;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bounded-memory reads of one owner's inventory history: keyset pages on (transactionDate, id)
+ * and NDJSON export straight from a database cursor.
+ */
+public class HistoryQueries<H extends HistoryEntry> {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final HistoryRepository<H> historyRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Long ownerId;
+
+    public HistoryQueries(HistoryRepository<H> historyRepository, EntityManager entityManager,
+                          ObjectMapper objectMapper, Long ownerId) {
+        this.historyRepository = historyRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.ownerId = ownerId;
+    }
+
+    @Transactional(readOnly = true)
+    public HistoryPage<H> getHistoryPage(String cursor, int limit) {
+        PageRequest page = PageRequest.of(0, clamp(limit));
+        Cursor after = Cursor.decode(cursor);
+        List<H> rows = after == null
+                ? historyRepository.findOwnerPage(ownerId, page)
+                : historyRepository.findOwnerPageBefore(ownerId, after.date(), after.id(), page);
+        return toPage(rows, page.getPageSize());
+    }
+
+    @Transactional(readOnly = true)
+    public HistoryPage<H> getProductHistoryPage(Long productId, String cursor, int limit) {
+        PageRequest page = PageRequest.of(0, clamp(limit));
+        Cursor after = Cursor.decode(cursor);
+        List<H> rows = after == null
+                ? historyRepository.findProductPage(ownerId, productId, page)
+                : historyRepository.findProductPageBefore(ownerId, productId, after.date(), after.id(), page);
+        return toPage(rows, page.getPageSize());
+    }
+
+    /**
+     * Write the owner's full history as NDJSON, newest first, in constant memory
+     */
+    @Transactional(readOnly = true)
+    public void exportHistory(OutputStream out) throws IOException {
+        try (Stream<H> rows = historyRepository.streamOwnerHistory(ownerId)) {
+            writeNdjson(rows, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportProductHistory(Long productId, OutputStream out) throws IOException {
+        try (Stream<H> rows = historyRepository.streamProductHistory(ownerId, productId)) {
+            writeNdjson(rows, out);
+        }
+    }
+
+    private void writeNdjson(Stream<H> rows, OutputStream out) throws IOException {
+        try {
+            rows.forEach(row -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(row));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // Written rows must not pile up in the persistence context
+                entityManager.detach(row);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private static <H extends HistoryEntry> HistoryPage<H> toPage(List<H> rows, int limit) {
+        String next = null;
+        if (rows.size() == limit) {
+            H last = rows.get(rows.size() - 1);
+            next = new Cursor(last.getTransactionDate(), last.getId()).encode();
+        }
+        return new HistoryPage<>(rows, next);
+    }
+
+    private static int clamp(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Position after the last row of a page, opaque to clients
+     */
+    record Cursor(LocalDateTime date, Long id) {
+
+        String encode() {
+            String raw = date + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int comma = raw.indexOf(',');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, comma)), Long.valueOf(raw.substring(comma + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.inventory.history;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+/**
+ * What the shared history code needs from a service's history repository. The service's
+ * repository extends this and supplies the queries for its own entity and owner column.
+ */
+@NoRepositoryBean
+public interface HistoryRepository<H extends HistoryEntry> extends Repository<H, Long> {
+
+    <S extends H> List<S> saveAll(Iterable<S> entities);
+
+    long count();
+
+    // Which of these history keys are already stored
+    List<UUID> findStoredKeys(Collection<UUID> keys);
+
+    // Keyset pages, newest first: the first page, then everything strictly older than the cursor
+    List<H> findOwnerPage(Long ownerId, Pageable pageable);
+
+    List<H> findOwnerPageBefore(Long ownerId, LocalDateTime date, Long id, Pageable pageable);
+
+    List<H> findProductPage(Long ownerId, Long productId, Pageable pageable);
+
+    List<H> findProductPageBefore(Long ownerId, Long productId, LocalDateTime date, Long id, Pageable pageable);
+
+    // Server-side cursors for exports, newest first
+    Stream<H> streamOwnerHistory(Long ownerId);
+
+    Stream<H> streamProductHistory(Long ownerId, Long productId);
+
+    // Keeps history inserts out while rollups or snapshots are computed from it
+    void lockHistory();
+}
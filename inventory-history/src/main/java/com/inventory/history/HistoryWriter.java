@@ -0,0 +1,758 @@
+package com.inventory.history;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only history pipeline: stock movements are queued once their transaction commits
+ * and a background thread inserts them in JDBC batches, so the sale or purchase never waits on
+ * the history insert.
+ *
+ * With history.writer.durability=wal every entry is appended to a local write-ahead file before its
+ * transaction commits and tombstoned if it rolls back; entries that never reached the database
+ * (crash, kill) are replayed on the next start. A crash between the WAL append and the commit itself
+ * replays a movement whose transaction never committed. With durability=none a crash loses whatever
+ * was still queued.
+ *
+ * The WAL is a series of segment files (wal-path.1, .2, ...). Writing rolls to a new segment once the
+ * current one passes history.writer.wal-segment-bytes, and a segment is deleted as soon as every
+ * entry in it is stored or rolled back, so the WAL stays small under steady traffic too.
+ *
+ * Every row carries a historyKey assigned when it is queued. Rows whose key is already stored are
+ * skipped, so a replay after a crash between the insert and the WAL checkpoint adds nothing twice.
+ * A batch that keeps failing is split until the failing rows are isolated; those are written to the
+ * quarantine file (history.writer.quarantine-path) instead of blocking the rows behind them.
+ */
+public class HistoryWriter<H extends HistoryEntry> {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryWriter.class);
+
+    private static final int SPILL_READ_SIZE = 64 * 1024;
+
+    private final Class<H> entryType;
+    private final HistoryRepository<H> historyRepository;
+    private final MovementRollups<H, ?> rollups;
+    private final StockSnapshots<H> snapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Pending<H>> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final Path walPath;
+    private final long walSegmentBytes;
+    private final Path quarantinePath;
+    private final boolean fsync;
+
+    // WAL state, guarded by this
+    private FileChannel wal;
+    private long segment;
+    private long appendedSeq;
+    // Entries per segment that are neither stored nor rolled back yet
+    private final TreeMap<Long, Integer> openEntries = new TreeMap<>();
+    // Segment and offset of the next spilled entry to read back, segment -1 while the buffer has room
+    private long spillSegment = -1;
+    private long spillOffset;
+
+    // Only used by the flusher
+    private FileChannel spillReader;
+    private long spillReaderSegment = -1;
+
+    // Group commit: one fsync covers every entry written before it, guarded by syncLock
+    private final Object syncLock = new Object();
+    private long syncedSeq;
+    private boolean syncing;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public HistoryWriter(Class<H> entryType,
+                         HistoryRepository<H> historyRepository,
+                         MovementRollups<H, ?> rollups,
+                         StockSnapshots<H> snapshots,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         int bufferSize,
+                         int batchSize,
+                         long flushIntervalMs,
+                         int maxAttempts,
+                         String durability,
+                         String walPath,
+                         long walSegmentBytes,
+                         String quarantinePath,
+                         boolean fsync) {
+        this.entryType = entryType;
+        this.historyRepository = historyRepository;
+        this.rollups = rollups;
+        this.snapshots = snapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.walPath = "wal".equalsIgnoreCase(durability) ? Path.of(walPath) : null;
+        this.walSegmentBytes = walSegmentBytes;
+        this.quarantinePath = Path.of(quarantinePath);
+        this.fsync = fsync;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (walPath != null) {
+            Path parent = walPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            List<Path> leftovers = walFiles();
+            replayWal(leftovers);
+            for (Path file : leftovers) {
+                Files.delete(file);
+            }
+            openSegment(1);
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "history-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue a history row. Inside a transaction it reaches the WAL before the commit but is only
+     * queued after it, so rolled-back movements never show up in the history.
+     */
+    public void append(H history) {
+        if (history.getHistoryKey() == null) {
+            history.setHistoryKey(UUID.randomUUID());
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(walPath == null ? new Pending<>(0, -1, history) : logToWal(history));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Pending<H> logged;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (walPath != null) {
+                    logged = logToWal(history);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    if (logged != null) {
+                        // Tombstone, so a replay skips the movement
+                        checkpoint(List.of(logged));
+                    }
+                    return;
+                }
+                if (status == STATUS_UNKNOWN) {
+                    log.warn("Commit outcome unknown, keeping the movement of product {} in the history",
+                            history.getProductId());
+                }
+                enqueue(logged != null ? logged : new Pending<>(0, -1, history));
+            }
+        });
+    }
+
+    /**
+     * Write the row to the WAL and wait until it is on disk when fsync is on
+     */
+    private Pending<H> logToWal(H history) {
+        long seq;
+        long writtenTo;
+        synchronized (this) {
+            seq = ++appendedSeq;
+            try {
+                writtenTo = writeEntry(seq + "\t" + objectMapper.writeValueAsString(history) + "\n");
+            } catch (IOException e) {
+                // The row is still queued; only its crash safety is lost
+                log.error("❌ Could not write history WAL {}: {}", walPath, e.getMessage());
+                writtenTo = -1;
+            }
+        }
+        if (writtenTo >= 0 && fsync) {
+            awaitSynced(seq);
+        }
+        return new Pending<>(seq, writtenTo, history);
+    }
+
+    private void enqueue(Pending<H> pending) {
+        if (walPath == null) {
+            // Never blocks the committing thread; without a WAL there is nowhere else to keep the row
+            if (!buffer.offer(pending)) {
+                log.error("❌ History buffer full, dropped movement of product {}", pending.history().getProductId());
+            }
+            return;
+        }
+        spillIfFull(pending);
+    }
+
+    /**
+     * Queue a committed row. When the buffer is full it is written to the WAL again as a spilled
+     * ("+") entry and the flusher reads it back from there, so the committing thread never waits for
+     * room. Plain entries cannot be read back: they include transactions that have not committed yet.
+     */
+    private synchronized void spillIfFull(Pending<H> pending) {
+        if (spillSegment < 0 && buffer.offer(pending)) {
+            return;
+        }
+        long offset;
+        long writtenTo;
+        try {
+            offset = wal.position();
+            writtenTo = writeEntry("+" + pending.seq() + "\t" + objectMapper.writeValueAsString(pending.history())
+                    + "\n");
+        } catch (IOException e) {
+            // Neither in the buffer nor spilled: its plain entry keeps the segment for the next start's replay
+            log.error("❌ History buffer full and WAL unwritable, left movement of product {} to the next start",
+                    pending.history().getProductId());
+            return;
+        }
+        // The spilled entry now carries the row
+        release(pending.segment());
+        if (spillSegment < 0) {
+            spillSegment = writtenTo;
+            spillOffset = offset;
+            log.warn("History buffer full, spilling new movements to {} until the flusher catches up", walPath);
+        }
+    }
+
+    /**
+     * Wait until the entry is on disk. The first waiter fsyncs everything written so far while
+     * later appends queue up behind it, so concurrent appends share one fsync.
+     */
+    private void awaitSynced(long seq) {
+        synchronized (syncLock) {
+            while (syncing && syncedSeq < seq) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (syncedSeq >= seq) {
+                return;
+            }
+            syncing = true;
+        }
+        long written;
+        FileChannel channel;
+        synchronized (this) {
+            written = appendedSeq;
+            channel = wal;
+        }
+        boolean synced = false;
+        try {
+            channel.force(false);
+            synced = true;
+        } catch (ClosedChannelException e) {
+            // Rolled to a new segment, which syncs the old one before closing it
+            synced = true;
+        } catch (IOException e) {
+            log.error("❌ Could not sync history WAL {}: {}", walPath, e.getMessage());
+        } finally {
+            synchronized (syncLock) {
+                if (synced) {
+                    syncedSeq = Math.max(syncedSeq, written);
+                }
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running || !buffer.isEmpty() || isSpilling()) {
+            try {
+                List<Pending<H>> batch = nextBatch();
+                if (!batch.isEmpty() && !settle(batch, maxAttempts) && !running) {
+                    // Shutting down with the database unavailable: the WAL keeps the rest for the next start
+                    break;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                log.error("❌ Could not read spilled history from WAL {}: {}", walPath, e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private List<Pending<H>> nextBatch() throws InterruptedException, IOException {
+        List<Pending<H>> batch = new ArrayList<>(batchSize);
+        if (buffer.isEmpty() && isSpilling()) {
+            return readSpilled();
+        }
+        Pending<H> first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            batch.add(first);
+            buffer.drainTo(batch, batchSize - 1);
+        }
+        return batch;
+    }
+
+    /**
+     * Store a batch, retrying it and then splitting it until rows that keep failing are isolated
+     * and quarantined. False if rows were left unsettled, they remain in the WAL.
+     */
+    private boolean settle(List<Pending<H>> batch, int attempts) {
+        int failures = 0;
+        while (true) {
+            try {
+                flush(batch);
+                return true;
+            } catch (RuntimeException e) {
+                if (databaseUnavailable(e)) {
+                    // Not the rows' fault: wait for the database instead of splitting
+                    if (!running) {
+                        log.error("❌ Database unavailable, left {} history rows unsettled: {}", batch.size(),
+                                e.getMessage());
+                        return false;
+                    }
+                    log.error("❌ Database unavailable, retrying {} history rows: {}", batch.size(), e.getMessage());
+                    pause();
+                    continue;
+                }
+                if (++failures < attempts) {
+                    log.error("❌ History flush of {} rows failed (attempt {}/{}), retrying: {}",
+                            batch.size(), failures, attempts, e.getMessage());
+                    pause();
+                    continue;
+                }
+                if (batch.size() == 1) {
+                    return quarantine(batch.get(0), e);
+                }
+                log.warn("Splitting history batch of {} rows to isolate the failing rows", batch.size());
+                int half = batch.size() / 2;
+                boolean first = settle(batch.subList(0, half), 1);
+                return settle(batch.subList(half, batch.size()), 1) && first;
+            }
+        }
+    }
+
+    private void flush(List<Pending<H>> batch) {
+        List<H> rows = new ArrayList<>(batch.size());
+        for (Pending<H> pending : batch) {
+            // Always new rows; clears an id assigned by a failed earlier attempt
+            pending.history().setId(null);
+            rows.add(pending.history());
+        }
+        Integer stored = transactionTemplate.execute(status -> store(rows));
+        if (wal != null) {
+            checkpoint(batch);
+        }
+        log.debug("📊 Flushed {} history rows ({} already stored)", stored, rows.size() - stored);
+    }
+
+    // Rows, their rollup totals and snapshot invalidation commit together, so nothing drifts from the history
+    private int store(List<H> rows) {
+        Set<UUID> keys = new HashSet<>();
+        for (H row : rows) {
+            if (row.getHistoryKey() != null) {
+                keys.add(row.getHistoryKey());
+            }
+        }
+        Set<UUID> stored = keys.isEmpty() ? Set.of() : new HashSet<>(historyRepository.findStoredKeys(keys));
+        List<H> fresh = rows.stream()
+                .filter(row -> row.getHistoryKey() == null || !stored.contains(row.getHistoryKey()))
+                .toList();
+        if (!fresh.isEmpty()) {
+            historyRepository.saveAll(fresh);
+            rollups.apply(fresh);
+            snapshots.historyStored(fresh);
+        }
+        return fresh.size();
+    }
+
+    /**
+     * Move a row that cannot be stored to the quarantine file, then mark it done in the WAL.
+     * If the quarantine file cannot be written the row stays in the WAL for the next start.
+     */
+    private boolean quarantine(Pending<H> pending, RuntimeException cause) {
+        H history = pending.history();
+        try {
+            Path parent = quarantinePath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel out = FileChannel.open(quarantinePath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer bytes = ByteBuffer.wrap((objectMapper.writeValueAsString(history) + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+                out.force(false);
+            }
+        } catch (IOException e) {
+            log.error("❌ Could not quarantine history row {} to {}: {}", history.getHistoryKey(), quarantinePath,
+                    e.getMessage());
+            return false;
+        }
+        log.error("❌ Quarantined history row {} of product {} to {}: {}", history.getHistoryKey(),
+                history.getProductId(), quarantinePath, cause.getMessage());
+        if (wal != null) {
+            checkpoint(List.of(pending));
+        }
+        return true;
+    }
+
+    // Connection-level failures; anything else is treated as a problem with the rows
+    private static boolean databaseUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof CannotCreateTransactionException || t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            // SQLSTATE class 08: connection exception
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark the batch's WAL entries as stored (or rolled back) and delete the segments left without open
+     * entries; once everything is settled the current segment starts over. Entries are listed by seq
+     * because concurrent writers can queue them out of seq order.
+     */
+    private synchronized void checkpoint(List<Pending<H>> batch) {
+        for (Pending<H> pending : batch) {
+            release(pending.segment());
+        }
+        try {
+            deleteSettledSegments();
+            if (openEntries.size() == 1 && openEntries.get(segment) == 0 && spillSegment < 0) {
+                wal.truncate(0);
+                wal.position(0);
+            } else {
+                StringBuilder marker = new StringBuilder("#");
+                for (Pending<H> pending : batch) {
+                    marker.append(pending.seq()).append(',');
+                }
+                marker.setCharAt(marker.length() - 1, '\n');
+                writeWal(marker.toString());
+            }
+        } catch (IOException e) {
+            log.warn("Could not checkpoint history WAL {}: {}", walPath, e.getMessage());
+        }
+    }
+
+    private void release(long entrySegment) {
+        if (entrySegment >= 0) {
+            openEntries.computeIfPresent(entrySegment, (index, open) -> open - 1);
+        }
+    }
+
+    /**
+     * Delete older segments without open entries. Segments the flusher still reads spilled entries
+     * from are kept, and the current segment is synced first so spilled copies outlive their originals.
+     */
+    private void deleteSettledSegments() throws IOException {
+        boolean synced = false;
+        Iterator<Map.Entry<Long, Integer>> segments = openEntries.entrySet().iterator();
+        while (segments.hasNext()) {
+            Map.Entry<Long, Integer> settled = segments.next();
+            long index = settled.getKey();
+            if (index >= segment || (spillSegment >= 0 && index >= spillSegment)) {
+                return;
+            }
+            if (settled.getValue() > 0) {
+                continue;
+            }
+            if (!synced) {
+                wal.force(false);
+                synced = true;
+            }
+            Files.deleteIfExists(segmentPath(index));
+            segments.remove();
+        }
+    }
+
+    private synchronized boolean isSpilling() {
+        return spillSegment >= 0;
+    }
+
+    /**
+     * Read the next batch of spilled entries back from the WAL. Appends hold the lock for the whole
+     * line, so everything before the WAL position taken under the lock is complete, and segments
+     * the writer has rolled past are complete as a whole.
+     */
+    private List<Pending<H>> readSpilled() throws IOException {
+        long readSegment;
+        long position;
+        long end;
+        synchronized (this) {
+            readSegment = spillSegment;
+            position = spillOffset;
+            end = readSegment == segment ? wal.position() : -1;
+        }
+        FileChannel reader = spillReader(readSegment);
+        if (end < 0) {
+            end = reader.size();
+        }
+        List<Pending<H>> batch = new ArrayList<>(batchSize);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer chunk = ByteBuffer.allocate(SPILL_READ_SIZE);
+        long read = position;
+        while (read < end && batch.size() < batchSize) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), end - read));
+            int n = reader.read(chunk, read);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n && batch.size() < batchSize; i++) {
+                byte b = chunk.get(i);
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                position = read + i + 1;
+                String entry = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+                int tab = entry.indexOf('\t');
+                if (entry.startsWith("+") && tab > 1) {
+                    try {
+                        batch.add(new Pending<>(Long.parseLong(entry.substring(1, tab)), readSegment,
+                                objectMapper.readValue(entry.substring(tab + 1), entryType)));
+                    } catch (IOException | NumberFormatException e) {
+                        log.warn("Skipping unreadable spilled history entry: {}", e.getMessage());
+                    }
+                }
+            }
+            read += n;
+        }
+        boolean caughtUp = false;
+        synchronized (this) {
+            if (readSegment != segment) {
+                if (position < reader.size()) {
+                    spillOffset = position;
+                } else {
+                    // The rest was spilled to the next segment
+                    spillSegment = readSegment + 1;
+                    spillOffset = 0;
+                }
+            } else if (position == wal.position()) {
+                spillSegment = -1;
+                caughtUp = true;
+            } else {
+                spillOffset = position;
+            }
+        }
+        if (caughtUp) {
+            closeSpillReader();
+        }
+        return batch;
+    }
+
+    private FileChannel spillReader(long index) throws IOException {
+        if (spillReaderSegment != index) {
+            closeSpillReader();
+            spillReader = FileChannel.open(segmentPath(index), StandardOpenOption.READ);
+            spillReaderSegment = index;
+        }
+        return spillReader;
+    }
+
+    private void closeSpillReader() throws IOException {
+        if (spillReader != null) {
+            spillReader.close();
+            spillReader = null;
+            spillReaderSegment = -1;
+        }
+    }
+
+    /**
+     * Write an entry line and count it as open in the segment it went to
+     */
+    private long writeEntry(String line) throws IOException {
+        long writtenTo = segment;
+        writeWal(line);
+        openEntries.merge(writtenTo, 1, Integer::sum);
+        return writtenTo;
+    }
+
+    private void writeWal(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            wal.write(bytes);
+        }
+        if (wal.position() >= walSegmentBytes) {
+            rollSegment();
+        }
+    }
+
+    /**
+     * Continue in a new segment. The old one is synced first, which covers everyone waiting on it.
+     */
+    private void rollSegment() {
+        try {
+            wal.force(false);
+            FileChannel previous = wal;
+            openSegment(segment + 1);
+            previous.close();
+        } catch (IOException e) {
+            // Keep writing to the current segment and try again after the next write
+            log.warn("Could not roll history WAL {} to a new segment: {}", walPath, e.getMessage());
+            return;
+        }
+        synchronized (syncLock) {
+            syncedSeq = Math.max(syncedSeq, appendedSeq);
+        }
+    }
+
+    private void openSegment(long index) throws IOException {
+        wal = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segment = index;
+        openEntries.putIfAbsent(index, 0);
+    }
+
+    private Path segmentPath(long index) {
+        return walPath.resolveSibling(walPath.getFileName() + "." + index);
+    }
+
+    /**
+     * WAL files left by a previous run, oldest first: the single file of earlier versions, then the segments
+     */
+    private List<Path> walFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (Files.isRegularFile(walPath)) {
+            files.add(walPath);
+        }
+        String prefix = walPath.getFileName() + ".";
+        try (Stream<Path> siblings = Files.list(walPath.toAbsolutePath().getParent())) {
+            siblings.filter(file -> segmentIndex(file, prefix) > 0)
+                    .sorted(Comparator.comparingLong(file -> segmentIndex(file, prefix)))
+                    .forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long segmentIndex(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Insert the WAL entries without a checkpoint, left over from a previous run. A checkpoint can be
+     * in a later segment than its entry, so all files are read before anything is replayed.
+     */
+    private void replayWal(List<Path> files) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (line.startsWith("#")) {
+                        for (String seq : line.substring(1).split(",")) {
+                            entries.remove(seq);
+                        }
+                    } else if (tab > 0) {
+                        // A spilled entry repeats the seq and row of its plain entry
+                        entries.put(line.substring(line.startsWith("+") ? 1 : 0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Pending<H>> rows = new ArrayList<>(entries.size());
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            try {
+                rows.add(new Pending<>(Long.parseLong(entry.getKey()), -1,
+                        objectMapper.readValue(entry.getValue(), entryType)));
+            } catch (IOException | NumberFormatException e) {
+                // A torn last line from a crash mid-write
+                log.warn("Skipping unreadable history WAL entry: {}", e.getMessage());
+            }
+        }
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Pending<H>> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            if (!settle(chunk, maxAttempts)) {
+                // Keep the WAL files for the next start rather than deleting unsettled rows
+                throw new IllegalStateException("Could not replay history WAL " + walPath);
+            }
+        }
+        log.info("📊 Replayed {} history rows from {} WAL files", rows.size(), files.size());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        closeSpillReader();
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(Math.max(flushIntervalMs, 1000));
+        } catch (InterruptedException e) {
+            running = false;
+        }
+    }
+
+    // segment is where the row's WAL entry is, -1 when it has none
+    private record Pending<E>(long seq, long segment, E history) {
+    }
+}
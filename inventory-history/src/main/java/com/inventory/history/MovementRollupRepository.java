@@ -0,0 +1,28 @@
+package com.inventory.history;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Rollup queries MovementRollups needs; the service's repository supplies them for its tables
+ */
+@NoRepositoryBean
+public interface MovementRollupRepository<R> extends Repository<R, Long> {
+
+    long count();
+
+    void deleteAllInBatch();
+
+    // Add a batch's totals to its bucket, creating the bucket on first use
+    void addToBucket(Long ownerId, String granularity, LocalDateTime bucketStart, Long productId,
+                     String productName, String transactionType, long count, long quantity, double value);
+
+    // Recompute one granularity from the raw history (unit is a date_trunc field: hour, day)
+    int rebuildFromHistory(String granularity, String unit);
+
+    List<R> findBuckets(Long ownerId, String granularity, LocalDateTime from, LocalDateTime to,
+                        Long productId, String transactionType);
+}
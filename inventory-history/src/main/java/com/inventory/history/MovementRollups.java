@@ -0,0 +1,130 @@
+package com.inventory.history;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Hourly and daily movement totals per (owner, product, transactionType).
+ * The history writer adds every flushed batch in the same transaction as its inserts,
+ * so the rollups always match the raw history.
+ */
+public class MovementRollups<H extends HistoryEntry, R> {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    private static final Logger log = LoggerFactory.getLogger(MovementRollups.class);
+
+    private final MovementRollupRepository<R> rollupRepository;
+    private final HistoryRepository<H> historyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Long ownerId;
+
+    public MovementRollups(MovementRollupRepository<R> rollupRepository, HistoryRepository<H> historyRepository,
+                           PlatformTransactionManager transactionManager, Long ownerId) {
+        this.rollupRepository = rollupRepository;
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * History written before the rollups existed is aggregated once, before the history writer starts
+     */
+    @PostConstruct
+    public void backfill() {
+        transactionTemplate.executeWithoutResult(status -> {
+            historyRepository.lockHistory();
+            if (rollupRepository.count() == 0 && historyRepository.count() > 0) {
+                int buckets = rebuildLocked();
+                log.info("📊 Built {} movement rollup buckets from existing history", buckets);
+            }
+        });
+    }
+
+    /**
+     * Add history rows to their hourly and daily buckets. Must run in the transaction that inserts them.
+     */
+    public void apply(List<? extends H> rows) {
+        // Collapse the batch first: one upsert per bucket instead of one per row
+        Map<BucketKey, Totals> buckets = new LinkedHashMap<>();
+        for (H row : rows) {
+            for (String granularity : List.of(HOUR, DAY)) {
+                BucketKey key = new BucketKey(row.getOwnerId(), granularity,
+                        bucketStart(row.getTransactionDate(), granularity), row.getProductId(), row.getTransactionType());
+                buckets.computeIfAbsent(key, k -> new Totals()).add(row);
+            }
+        }
+        buckets.forEach((key, totals) -> rollupRepository.addToBucket(key.ownerId(), key.granularity(),
+                key.bucketStart(), key.productId(), totals.productName, key.transactionType(),
+                totals.count, totals.quantity, totals.value));
+    }
+
+    /**
+     * Throw the rollups away and recompute them from the raw history
+     */
+    public int rebuild() {
+        Integer buckets = transactionTemplate.execute(status -> {
+            historyRepository.lockHistory();
+            return rebuildLocked();
+        });
+        log.info("📊 Rebuilt {} movement rollup buckets", buckets);
+        return buckets;
+    }
+
+    private int rebuildLocked() {
+        rollupRepository.deleteAllInBatch();
+        return rollupRepository.rebuildFromHistory(HOUR, "hour") + rollupRepository.rebuildFromHistory(DAY, "day");
+    }
+
+    /**
+     * The owner's buckets in [from, to); defaults to the last 24 hours (HOUR) or 30 days (DAY)
+     */
+    @Transactional(readOnly = true)
+    public List<R> getRollups(String granularity, LocalDateTime from, LocalDateTime to,
+                              Long productId, String transactionType) {
+        String unit = granularity.toUpperCase();
+        if (!HOUR.equals(unit) && !DAY.equals(unit)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be HOUR or DAY");
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : HOUR.equals(unit) ? end.minusHours(24) : end.minusDays(30);
+        return rollupRepository.findBuckets(ownerId, unit, bucketStart(start, unit), end, productId,
+                transactionType == null ? null : transactionType.toUpperCase());
+    }
+
+    private static LocalDateTime bucketStart(LocalDateTime time, String granularity) {
+        return time.truncatedTo(HOUR.equals(granularity) ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    private record BucketKey(Long ownerId, String granularity, LocalDateTime bucketStart,
+                             Long productId, String transactionType) {
+    }
+
+    private static final class Totals {
+        private String productName;
+        private long count;
+        private long quantity;
+        private double value;
+
+        void add(HistoryEntry row) {
+            productName = row.getProductName();
+            count++;
+            quantity += row.getQuantity();
+            value += (double) row.getQuantity() * row.getPriceAtTransaction();
+        }
+    }
+}
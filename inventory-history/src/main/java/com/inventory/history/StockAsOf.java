@@ -0,0 +1,4 @@
+package com.inventory.history;
+
+public record StockAsOf(Long productId, String productName, long stock) {
+}
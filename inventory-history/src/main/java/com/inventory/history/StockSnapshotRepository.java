@@ -0,0 +1,35 @@
+package com.inventory.history;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Snapshot queries StockSnapshots needs; the service's repository supplies them for its tables
+ */
+@NoRepositoryBean
+public interface StockSnapshotRepository<S> extends Repository<S, Long> {
+
+    // Nearest snapshot at or before the given time, null if there is none
+    LocalDateTime findLatestSnapshotAt(Long ownerId, LocalDateTime at);
+
+    // New snapshot = previous snapshot + net stock change of the history in (previous, cutoff]
+    int takeSnapshot(Long ownerId, LocalDateTime previous, LocalDateTime cutoff);
+
+    // Stock as of a time: the base snapshot plus the history after it
+    List<StockAt> findStockAsOf(Long ownerId, LocalDateTime base, LocalDateTime asOf);
+
+    List<StockAt> findProductStockAsOf(Long ownerId, Long productId, LocalDateTime base, LocalDateTime asOf);
+
+    int deleteFrom(Long ownerId, LocalDateTime from);
+
+    int deleteOlderThan(Long ownerId, LocalDateTime before);
+
+    interface StockAt {
+        Long getProductId();
+        String getProductName();
+        Long getStock();
+    }
+}
@@ -0,0 +1,123 @@
+package com.inventory.history;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventory.history.StockSnapshotRepository.StockAt;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Periodic per-product stock snapshots of one owner, and "stock at time T" queries that
+ * start from the nearest snapshot and replay only the history after it.
+ *
+ * Snapshots are folded from the history itself (previous snapshot + stockAfter - stockBefore),
+ * so they agree with the history by construction. History newer than settle-ms is left to the
+ * next snapshot because the history writer inserts rows slightly after they happen.
+ */
+public class StockSnapshots<H extends HistoryEntry> {
+
+    // Sentinel "previous snapshot" before the first one: replay the whole history
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final Logger log = LoggerFactory.getLogger(StockSnapshots.class);
+
+    private final StockSnapshotRepository<?> snapshotRepository;
+    private final HistoryRepository<H> historyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Long ownerId;
+    private final long settleMs;
+    private final int retentionDays;
+
+    // Newest snapshot time of this owner, so late history can invalidate what it missed
+    private volatile LocalDateTime latestSnapshotAt;
+
+    public StockSnapshots(StockSnapshotRepository<?> snapshotRepository, HistoryRepository<H> historyRepository,
+                          PlatformTransactionManager transactionManager, Long ownerId,
+                          long settleMs, int retentionDays) {
+        this.snapshotRepository = snapshotRepository;
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ownerId = ownerId;
+        this.settleMs = settleMs;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void loadLatest() {
+        latestSnapshotAt = snapshotRepository.findLatestSnapshotAt(ownerId, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${stock.snapshot.interval-ms:3600000}",
+               initialDelayString = "${stock.snapshot.interval-ms:3600000}")
+    public void takeSnapshot() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(settleMs));
+        Integer products = transactionTemplate.execute(status -> {
+            // History inserts wait until the snapshot commits, none can slip in behind the cutoff
+            historyRepository.lockHistory();
+            LocalDateTime previous = snapshotRepository.findLatestSnapshotAt(ownerId, cutoff);
+            int rows = snapshotRepository.takeSnapshot(ownerId, previous != null ? previous : BEGINNING, cutoff);
+            snapshotRepository.deleteOlderThan(ownerId, cutoff.minusDays(retentionDays));
+            latestSnapshotAt = cutoff;
+            return rows;
+        });
+        log.info("📸 Stock snapshot of {} at {}: {} products", ownerId, cutoff, products);
+    }
+
+    /**
+     * Called in the history insert transaction: rows older than the newest snapshot (a WAL replay,
+     * a long-failing flush) were missed by it, so snapshots from their time on are dropped
+     */
+    public void historyStored(List<? extends H> rows) {
+        LocalDateTime latest = latestSnapshotAt;
+        if (latest == null) {
+            return;
+        }
+        LocalDateTime oldest = rows.stream()
+                .map(HistoryEntry::getTransactionDate)
+                .min(LocalDateTime::compareTo)
+                .orElse(latest);
+        if (!oldest.isAfter(latest)) {
+            int dropped = snapshotRepository.deleteFrom(ownerId, oldest);
+            latestSnapshotAt = snapshotRepository.findLatestSnapshotAt(ownerId, LocalDateTime.now());
+            log.warn("Dropped {} stock snapshot rows invalidated by late history from {}", dropped, oldest);
+        }
+    }
+
+    /**
+     * Stock of every product of the owner at the given time
+     */
+    @Transactional(readOnly = true)
+    public List<StockAsOf> getStockAsOf(LocalDateTime asOf) {
+        return toStockAsOf(snapshotRepository.findStockAsOf(ownerId, baseSnapshot(asOf), asOf));
+    }
+
+    /**
+     * Stock of one product at the given time; 0 if it had no stock movements yet
+     */
+    @Transactional(readOnly = true)
+    public StockAsOf getProductStockAsOf(Long productId, LocalDateTime asOf) {
+        List<StockAsOf> stock = toStockAsOf(
+                snapshotRepository.findProductStockAsOf(ownerId, productId, baseSnapshot(asOf), asOf));
+        return stock.isEmpty() ? new StockAsOf(productId, null, 0) : stock.get(0);
+    }
+
+    private LocalDateTime baseSnapshot(LocalDateTime asOf) {
+        LocalDateTime base = snapshotRepository.findLatestSnapshotAt(ownerId, asOf);
+        return base != null ? base : BEGINNING;
+    }
+
+    private static List<StockAsOf> toStockAsOf(List<StockAt> rows) {
+        return rows.stream()
+                .map(row -> new StockAsOf(row.getProductId(), row.getProductName(), row.getStock()))
+                .toList();
+    }
+}
@@ -0,0 +1,505 @@
+package com.inventory.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class HistoryWriterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final FakeHistoryRepository repository = new FakeHistoryRepository();
+    @SuppressWarnings("unchecked")
+    private final MovementRollups<TestEntry, ?> rollups = mock(MovementRollups.class);
+    @SuppressWarnings("unchecked")
+    private final StockSnapshots<TestEntry> snapshots = mock(StockSnapshots.class);
+
+    private Path wal;
+    private Path quarantine;
+    private HistoryWriter<TestEntry> writer;
+
+    @BeforeEach
+    void setUp() {
+        wal = dir.resolve("history.wal");
+        quarantine = dir.resolve("history.quarantine");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void storesQueuedRowsAndStartsTheWalOver() throws IOException {
+        start(8192, "wal");
+
+        for (int i = 0; i < 120; i++) {
+            writer.append(entry(i));
+        }
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 120);
+        await().atMost(TIMEOUT).until(() -> walBytes() == 0);
+        assertThat(Files.exists(quarantine)).isFalse();
+    }
+
+    @Test
+    void quarantinesRowsThatKeepFailingAndKeepsFlushing() throws IOException {
+        repository.rejects = row -> row.getProductId() == 13;
+        start(8192, "wal");
+
+        for (int i = 0; i < 30; i++) {
+            writer.append(entry(i));
+        }
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 29);
+        List<String> quarantined = Files.readAllLines(quarantine);
+        assertThat(quarantined).hasSize(1);
+        assertThat(objectMapper.readValue(quarantined.get(0), TestEntry.class).getProductId()).isEqualTo(13L);
+
+        // The flusher is not stuck behind the bad row
+        writer.append(entry(100));
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 30);
+        await().atMost(TIMEOUT).until(() -> walBytes() == 0);
+    }
+
+    @Test
+    void waitsForTheDatabaseInsteadOfQuarantining() {
+        repository.unavailable.set(2);
+        start(8192, "wal");
+
+        for (int i = 0; i < 5; i++) {
+            writer.append(entry(i));
+        }
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 5);
+        assertThat(Files.exists(quarantine)).isFalse();
+    }
+
+    @Test
+    void replaySkipsRowsThatWereAlreadyStored() throws IOException {
+        TestEntry checkpointed = entry(1);
+        TestEntry committed = entry(2);
+        TestEntry lost = entry(3);
+        for (TestEntry row : List.of(checkpointed, committed, lost)) {
+            row.setHistoryKey(UUID.randomUUID());
+        }
+        // Crash after the batch of 2 and 3 committed but before its checkpoint was written
+        repository.rows.add(committed);
+        Files.writeString(wal, "1\t" + objectMapper.writeValueAsString(checkpointed) + "\n"
+                + "2\t" + objectMapper.writeValueAsString(committed) + "\n"
+                + "3\t" + objectMapper.writeValueAsString(lost) + "\n"
+                + "#1\n");
+
+        start(8192, "wal");
+
+        assertThat(repository.rows).extracting(TestEntry::getHistoryKey)
+                .containsExactlyInAnyOrder(committed.getHistoryKey(), lost.getHistoryKey());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TestEntry>> applied = ArgumentCaptor.forClass(List.class);
+        verify(rollups).apply(applied.capture());
+        assertThat(applied.getValue()).extracting(TestEntry::getHistoryKey).containsExactly(lost.getHistoryKey());
+        assertThat(Files.exists(wal)).isFalse();
+        assertThat(walBytes()).isZero();
+    }
+
+    @Test
+    void replayReadsCheckpointsFromLaterSegments() throws IOException {
+        TestEntry stored = entry(1);
+        TestEntry lost = entry(2);
+        Files.writeString(dir.resolve("history.wal.1"), "1\t" + objectMapper.writeValueAsString(stored) + "\n"
+                + "2\t" + objectMapper.writeValueAsString(lost) + "\n");
+        Files.writeString(dir.resolve("history.wal.2"), "#1\n");
+
+        start(8192, "wal");
+
+        assertThat(repository.rows).extracting(TestEntry::getProductId).containsExactly(2L);
+        assertThat(walBytes()).isZero();
+    }
+
+    @Test
+    void settledSegmentsAreDeletedWhileAppendsContinue() throws IOException {
+        start(8192, "wal", 4096, false);
+        int appended = 0;
+        int mostSegments = 0;
+
+        // Stay a little ahead of the flusher so the WAL is never fully settled
+        while (appended < 3000) {
+            for (int i = 0; i < 20; i++) {
+                writer.append(entry(appended++));
+            }
+            int ahead = appended - 100;
+            await().atMost(TIMEOUT).pollInterval(Duration.ofMillis(1)).until(() -> repository.rows.size() >= ahead);
+            mostSegments = Math.max(mostSegments, walSegments().size());
+        }
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 3000);
+        // About 15 entries fit in a segment, so a few hundred segments came and went
+        assertThat(mostSegments).isLessThan(30);
+        assertThat(walSegments()).extracting(segment -> segment.getFileName().toString())
+                .allMatch(name -> Long.parseLong(name.substring("history.wal.".length())) > 100);
+    }
+
+    @Test
+    void walHoldsTheRowBeforeCommitAndTombstonesRollbacks() throws IOException {
+        start(8192, "wal");
+        TestEntry committed = entry(1);
+        TestEntry rolledBack = entry(2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.append(committed);
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            // On disk before the commit, queued only after it
+            assertThat(Files.readString(dir.resolve("history.wal.1"))).contains(committed.getHistoryKey().toString());
+            assertThat(repository.rows).isEmpty();
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+
+            writer.append(rolledBack);
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 1);
+        assertThat(repository.rows).extracting(TestEntry::getProductId).containsExactly(1L);
+        await().atMost(TIMEOUT).until(() -> walBytes() == 0);
+    }
+
+    @Test
+    void fullBufferSpillsToTheWalInsteadOfBlocking() {
+        repository.gate = new CountDownLatch(1);
+        start(4, "wal");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 200; i++) {
+                writer.append(entry(i));
+            }
+        });
+        repository.gate.countDown();
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == 200);
+        assertThat(repository.rows.stream().map(TestEntry::getHistoryKey).distinct()).hasSize(200);
+        await().atMost(TIMEOUT).until(() -> walBytes() == 0);
+    }
+
+    @Test
+    void fullBufferWithoutWalDropsInsteadOfBlocking() {
+        repository.gate = new CountDownLatch(1);
+        start(4, "none");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 50; i++) {
+                writer.append(entry(i));
+            }
+        });
+        repository.gate.countDown();
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() >= 4);
+        assertThat(repository.rows.size()).isLessThan(50);
+    }
+
+    @Test
+    void concurrentAppendsAreAllStoredOnce() throws Exception {
+        start(256, "wal");
+        int threads = 8;
+        int perThread = 500;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            pool.execute(() -> {
+                ready.countDown();
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    writer.append(entry(base + i));
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        await().atMost(TIMEOUT).until(() -> repository.rows.size() == threads * perThread);
+        assertThat(repository.rows.stream().map(TestEntry::getProductId).collect(Collectors.toSet()))
+                .hasSize(threads * perThread);
+        await().atMost(TIMEOUT).until(() -> walBytes() == 0);
+        verify(rollups, atLeastOnce()).apply(anyList());
+    }
+
+    private void start(int bufferSize, String durability) {
+        start(bufferSize, durability, 1024 * 1024, true);
+    }
+
+    private void start(int bufferSize, String durability, long segmentBytes, boolean fsync) {
+        writer = new HistoryWriter<>(TestEntry.class, repository, rollups, snapshots,
+                mock(PlatformTransactionManager.class), objectMapper, bufferSize, 50, 10, 2, durability,
+                wal.toString(), segmentBytes, quarantine.toString(), fsync);
+        try {
+            writer.start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Path> walSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("history.wal.")).toList();
+        }
+    }
+
+    private long walBytes() throws IOException {
+        long bytes = 0;
+        for (Path segment : walSegments()) {
+            bytes += Files.size(segment);
+        }
+        return bytes;
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+    }
+
+    private static TestEntry entry(long productId) {
+        TestEntry entry = new TestEntry();
+        entry.setOwnerId(1L);
+        entry.setProductId(productId);
+        entry.setProductName("Product " + productId);
+        entry.setTransactionType("SOLD");
+        entry.setQuantity(1);
+        entry.setPriceAtTransaction(2.5f);
+        entry.setTransactionDate(LocalDateTime.now());
+        return entry;
+    }
+
+    /**
+     * Keeps rows in memory; a batch fails as a whole, like a rolled-back transaction
+     */
+    static class FakeHistoryRepository implements HistoryRepository<TestEntry> {
+
+        final List<TestEntry> rows = new CopyOnWriteArrayList<>();
+        final AtomicInteger unavailable = new AtomicInteger();
+        volatile Predicate<TestEntry> rejects = row -> false;
+        volatile CountDownLatch gate;
+
+        @Override
+        public <S extends TestEntry> List<S> saveAll(Iterable<S> entities) {
+            if (unavailable.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new CannotCreateTransactionException("Connection refused");
+            }
+            CountDownLatch waitFor = gate;
+            if (waitFor != null) {
+                try {
+                    waitFor.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<S> batch = new ArrayList<>();
+            entities.forEach(batch::add);
+            for (S row : batch) {
+                if (rejects.test(row)) {
+                    throw new DataIntegrityViolationException("value too long for product " + row.getProductId());
+                }
+            }
+            rows.addAll(batch);
+            return batch;
+        }
+
+        @Override
+        public long count() {
+            return rows.size();
+        }
+
+        @Override
+        public List<UUID> findStoredKeys(Collection<UUID> keys) {
+            Set<UUID> wanted = Set.copyOf(keys);
+            return rows.stream().map(TestEntry::getHistoryKey).filter(wanted::contains).toList();
+        }
+
+        @Override
+        public List<TestEntry> findOwnerPage(Long ownerId, Pageable pageable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TestEntry> findOwnerPageBefore(Long ownerId, LocalDateTime date, Long id, Pageable pageable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TestEntry> findProductPage(Long ownerId, Long productId, Pageable pageable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TestEntry> findProductPageBefore(Long ownerId, Long productId, LocalDateTime date, Long id,
+                                                     Pageable pageable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Stream<TestEntry> streamOwnerHistory(Long ownerId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Stream<TestEntry> streamProductHistory(Long ownerId, Long productId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void lockHistory() {
+        }
+    }
+
+    static class TestEntry implements HistoryEntry {
+
+        private Long id;
+        private UUID historyKey;
+        private Long ownerId;
+        private Long productId;
+        private String productName;
+        private String transactionType;
+        private int quantity;
+        private float priceAtTransaction;
+        private LocalDateTime transactionDate;
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        @Override
+        public UUID getHistoryKey() {
+            return historyKey;
+        }
+
+        @Override
+        public void setHistoryKey(UUID historyKey) {
+            this.historyKey = historyKey;
+        }
+
+        @Override
+        public Long getOwnerId() {
+            return ownerId;
+        }
+
+        public void setOwnerId(Long ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        @Override
+        public String getProductName() {
+            return productName;
+        }
+
+        public void setProductName(String productName) {
+            this.productName = productName;
+        }
+
+        @Override
+        public String getTransactionType() {
+            return transactionType;
+        }
+
+        public void setTransactionType(String transactionType) {
+            this.transactionType = transactionType;
+        }
+
+        @Override
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        @Override
+        public float getPriceAtTransaction() {
+            return priceAtTransaction;
+        }
+
+        public void setPriceAtTransaction(float priceAtTransaction) {
+            this.priceAtTransaction = priceAtTransaction;
+        }
+
+        @Override
+        public LocalDateTime getTransactionDate() {
+            return transactionDate;
+        }
+
+        public void setTransactionDate(LocalDateTime transactionDate) {
+            this.transactionDate = transactionDate;
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.inventory.messaging;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * Tagged binary encoding of plain DTOs (Lombok beans or records), protobuf style:
+ * each non-null property is written as a varint tag followed by its value.
+ *
+ * The tag is a 16-bit hash of the property name plus a 4-bit kind, so it costs two or three
+ * bytes instead of the quoted name, and two classes with the same property names (the
+ * per-service copies of a DTO) read each other's bytes. Properties the reader does not know are
+ * skipped by the kind's wire type; properties missing from the bytes keep their default. A known
+ * property whose kind drifted (an int that became a long, a timestamp that became a number)
+ * is rejected rather than decoded into the wrong value, and so are truncated or malformed bodies.
+ *
+ * Values: ints and longs as zigzag varints, float/double as little-endian fixed 32/64 bits,
+ * booleans as 0/1, LocalDateTime as zigzag varint epoch micros (UTC), enums by name,
+ * strings as length-prefixed UTF-8, nested objects and lists length-prefixed.
+ */
+final class BinaryCodec {
+
+    static final int VARINT = 0;
+    static final int FIXED32 = 1;
+    static final int FIXED64 = 2;
+    static final int LENGTH = 3;
+
+    private static final ClassValue<Schema> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected Schema computeValue(Class<?> type) {
+            return Schema.of(type);
+        }
+    };
+
+    private BinaryCodec() {
+    }
+
+    static byte[] encode(Object value) {
+        Writer out = new Writer(256);
+        writeFields(out, value);
+        return out.toByteArray();
+    }
+
+    static <T> T decode(byte[] body, Class<T> type) {
+        Reader in = new Reader(body);
+        return type.cast(readFields(in, SCHEMAS.get(type)));
+    }
+
+    // ==================== ENCODING ====================
+
+    private static void writeFields(Writer out, Object value) {
+        Schema schema = SCHEMAS.get(value.getClass());
+        for (Property property : schema.properties) {
+            Object field = property.get(value);
+            if (field != null) {
+                out.writeVarint(((long) property.tag << 4) | property.kind.code);
+                writeValue(out, property.kind, property.elementType, field);
+            }
+        }
+    }
+
+    private static void writeValue(Writer out, Kind kind, Class<?> elementType, Object value) {
+        switch (kind) {
+            case INT -> out.writeVarint(zigzag(((Number) value).longValue()));
+            case LONG -> out.writeVarint(zigzag((Long) value));
+            case BOOLEAN -> out.writeVarint((Boolean) value ? 1 : 0);
+            case DATETIME -> {
+                LocalDateTime time = (LocalDateTime) value;
+                out.writeVarint(zigzag(time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000));
+            }
+            case FLOAT -> out.writeFixed32(Float.floatToIntBits((Float) value));
+            case DOUBLE -> out.writeFixed64(Double.doubleToLongBits((Double) value));
+            case STRING -> out.writeString((String) value);
+            case ENUM -> out.writeString(((Enum<?>) value).name());
+            case OBJECT -> {
+                int mark = out.beginLength();
+                writeFields(out, value);
+                out.endLength(mark);
+            }
+            case LIST -> {
+                int mark = out.beginLength();
+                Collection<?> items = (Collection<?>) value;
+                Kind itemKind = Kind.of(elementType);
+                out.writeVarint(items.size());
+                for (Object item : items) {
+                    writeValue(out, itemKind, null, item);
+                }
+                out.endLength(mark);
+            }
+        }
+    }
+
+    // ==================== DECODING ====================
+
+    // Reads properties up to the reader's current limit: the body, or the enclosing object
+    private static Object readFields(Reader in, Schema schema) {
+        Object[] values = new Object[schema.properties.size()];
+        while (in.position < in.limit) {
+            long tag = in.readVarint();
+            Kind kind = Kind.ofCode((int) (tag & 15));
+            Property property = schema.byTag.get((int) (tag >>> 4));
+            if (property == null) {
+                in.skip(kind.wireType);
+            } else if (property.kind != kind) {
+                throw new MessageConversionException("Property " + property.name + " of " + schema.type.getName()
+                        + " is " + property.kind + " but the payload has " + kind);
+            } else {
+                values[property.index] = readValue(in, property.kind, property.elementType, property.type);
+            }
+        }
+        return schema.create(values);
+    }
+
+    private static Object readValue(Reader in, Kind kind, Class<?> elementType, Class<?> type) {
+        return switch (kind) {
+            case INT -> {
+                long value = unzigzag(in.readVarint());
+                yield type == short.class || type == Short.class ? (Object) (short) value
+                        : type == byte.class || type == Byte.class ? (Object) (byte) value
+                        : (Object) (int) value;
+            }
+            case LONG -> unzigzag(in.readVarint());
+            case BOOLEAN -> in.readVarint() != 0;
+            case DATETIME -> {
+                long micros = unzigzag(in.readVarint());
+                yield LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                        (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+            }
+            case FLOAT -> Float.intBitsToFloat(in.readFixed32());
+            case DOUBLE -> Double.longBitsToDouble(in.readFixed64());
+            case STRING -> in.readString();
+            case ENUM -> enumValue(type, in.readString());
+            case OBJECT -> {
+                int outer = in.pushLimit(in.readLength());
+                Object value = readFields(in, SCHEMAS.get(type));
+                in.popLimit(outer);
+                yield value;
+            }
+            case LIST -> {
+                int outer = in.pushLimit(in.readLength());
+                // Every item takes at least one byte, so a corrupt count cannot allocate more than the body
+                int count = in.readLength();
+                Kind itemKind = Kind.of(elementType);
+                List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    items.add(readValue(in, itemKind, null, elementType));
+                }
+                in.popLimit(outer);
+                yield items;
+            }
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object enumValue(Class<?> type, String name) {
+        try {
+            return Enum.valueOf((Class<? extends Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            return null;  // A constant this side does not know yet
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // ==================== SCHEMA ====================
+
+    enum Kind {
+        INT(0, VARINT), LONG(1, VARINT), BOOLEAN(2, VARINT), DATETIME(3, VARINT),
+        FLOAT(4, FIXED32), DOUBLE(5, FIXED64),
+        STRING(6, LENGTH), ENUM(7, LENGTH), OBJECT(8, LENGTH), LIST(9, LENGTH);
+
+        private static final Kind[] BY_CODE = new Kind[16];
+
+        static {
+            for (Kind kind : values()) {
+                BY_CODE[kind.code] = kind;
+            }
+        }
+
+        // Written in the low 4 bits of the tag; never renumber
+        final int code;
+        final int wireType;
+
+        Kind(int code, int wireType) {
+            this.code = code;
+            this.wireType = wireType;
+        }
+
+        static Kind ofCode(int code) {
+            Kind kind = BY_CODE[code];
+            if (kind == null) {
+                throw new MessageConversionException("Unknown property kind " + code + " in binary payload");
+            }
+            return kind;
+        }
+
+        static Kind of(Class<?> type) {
+            if (type == int.class || type == Integer.class || type == short.class || type == Short.class
+                    || type == byte.class || type == Byte.class) {
+                return INT;
+            }
+            if (type == long.class || type == Long.class) {
+                return LONG;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return BOOLEAN;
+            }
+            if (type == float.class || type == Float.class) {
+                return FLOAT;
+            }
+            if (type == double.class || type == Double.class) {
+                return DOUBLE;
+            }
+            if (type == String.class) {
+                return STRING;
+            }
+            if (type == LocalDateTime.class) {
+                return DATETIME;
+            }
+            if (type.isEnum()) {
+                return ENUM;
+            }
+            if (List.class.isAssignableFrom(type)) {
+                return LIST;
+            }
+            if (type.isPrimitive() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+                    || type.getName().startsWith("java.")) {
+                throw new IllegalArgumentException("No binary encoding for " + type.getName());
+            }
+            return OBJECT;
+        }
+    }
+
+    private static final class Property {
+        final String name;
+        final int tag;
+        final int index;
+        final Kind kind;
+        final Class<?> type;
+        final Class<?> elementType;
+        final Field field;              // Beans
+        final Method accessor;  // Records
+
+        Property(String name, int index, Class<?> type, Type genericType, Field field, Method accessor) {
+            this.name = name;
+            this.tag = tagOf(name);
+            this.index = index;
+            this.type = type;
+            this.kind = Kind.of(type);
+            this.elementType = kind == Kind.LIST ? elementTypeOf(name, genericType) : null;
+            if (elementType != null) {
+                Kind.of(elementType);  // Fail on unsupported elements now, not on the first message
+            }
+            this.field = field;
+            this.accessor = accessor;
+        }
+
+        Object get(Object target) {
+            try {
+                return field != null ? field.get(target) : accessor.invoke(target);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot read " + name, e);
+            }
+        }
+
+        private static Class<?> elementTypeOf(String name, Type genericType) {
+            if (genericType instanceof ParameterizedType parameterized
+                    && parameterized.getActualTypeArguments()[0] instanceof Class<?> element) {
+                return element;
+            }
+            throw new IllegalArgumentException("List property " + name + " needs a concrete element type");
+        }
+
+        // FNV-1a folded to 16 bits: stable across JVMs and class versions
+        private static int tagOf(String name) {
+            int hash = 0x811C9DC5;
+            for (int i = 0; i < name.length(); i++) {
+                hash ^= name.charAt(i);
+                hash *= 0x01000193;
+            }
+            return (hash >>> 16) ^ (hash & 0xFFFF);
+        }
+    }
+
+    private static final class Schema {
+        final Class<?> type;
+        final List<Property> properties;
+        final Map<Integer, Property> byTag;
+        final Constructor<?> constructor;
+        final Object[] defaults;
+
+        private Schema(Class<?> type, List<Property> properties, Constructor<?> constructor) {
+            this.type = type;
+            this.properties = properties;
+            this.constructor = constructor;
+            this.byTag = new HashMap<>();
+            this.defaults = new Object[properties.size()];
+            for (Property property : properties) {
+                Property clash = byTag.put(property.tag, property);
+                if (clash != null) {
+                    throw new IllegalStateException("Properties " + clash.name + " and " + property.name
+                            + " of " + type.getName() + " hash to the same binary tag, rename one");
+                }
+                defaults[property.index] = defaultValue(property.type);
+            }
+        }
+
+        static Schema of(Class<?> type) {
+            try {
+                List<Property> properties = new ArrayList<>();
+                if (type.isRecord()) {
+                    RecordComponent[] components = type.getRecordComponents();
+                    Class<?>[] parameterTypes = new Class<?>[components.length];
+                    for (int i = 0; i < components.length; i++) {
+                        RecordComponent component = components[i];
+                        parameterTypes[i] = component.getType();
+                        Method accessor = component.getAccessor();
+                        accessor.setAccessible(true);
+                        properties.add(new Property(component.getName(), i, component.getType(),
+                                component.getGenericType(), null, accessor));
+                    }
+                    Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+                    constructor.setAccessible(true);
+                    return new Schema(type, properties, constructor);
+                }
+                for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                    for (Field field : current.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                            continue;
+                        }
+                        field.setAccessible(true);
+                        properties.add(new Property(field.getName(), properties.size(), field.getType(),
+                                field.getGenericType(), field, null));
+                    }
+                }
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return new Schema(type, properties, constructor);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type.getName() + " needs a no-args constructor for binary decoding", e);
+            }
+        }
+
+        Object create(Object[] values) {
+            try {
+                if (type.isRecord()) {
+                    for (int i = 0; i < values.length; i++) {
+                        if (values[i] == null) {
+                            values[i] = defaults[i];
+                        }
+                    }
+                    return constructor.newInstance(values);
+                }
+                Object instance = constructor.newInstance();
+                for (Property property : properties) {
+                    Object value = values[property.index];
+                    if (value != null) {
+                        property.field.set(instance, value);
+                    }
+                }
+                return instance;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create " + type.getName(), e);
+            }
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return null;
+            }
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == float.class) {
+                return 0f;
+            }
+            if (type == double.class) {
+                return 0d;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            if (type == short.class) {
+                return (short) 0;
+            }
+            if (type == byte.class) {
+                return (byte) 0;
+            }
+            return 0;
+        }
+    }
+
+    // ==================== BUFFERS ====================
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixed32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[position++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        // Length prefixes are written after the content: reserve one byte, widen if needed
+        int beginLength() {
+            ensure(1);
+            return position++;
+        }
+
+        void endLength(int mark) {
+            int length = position - mark - 1;
+            int size = varintSize(length);
+            if (size > 1) {
+                ensure(size - 1);
+                System.arraycopy(buffer, mark + 1, buffer, mark + size, length);
+                position += size - 1;
+            }
+            int at = mark;
+            long value = length;
+            while ((value & ~0x7FL) != 0) {
+                buffer[at++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[at] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.length;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new MessageConversionException("Malformed varint at offset " + position);
+        }
+
+        // A length prefix or count, which can never exceed the bytes left
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > limit - position) {
+                throw new MessageConversionException("Length " + length + " at offset " + position
+                        + " runs past the end of the payload");
+            }
+            return (int) length;
+        }
+
+        int readFixed32() {
+            require(4);
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (buffer[position++] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        long readFixed64() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (buffer[position++] & 0xFF) << (8 * i);
+            }
+            return value;
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case VARINT -> readVarint();
+                case FIXED32 -> skipBytes(4);
+                case FIXED64 -> skipBytes(8);
+                case LENGTH -> position += readLength();
+                default -> throw new MessageConversionException("Unknown wire type " + wireType);
+            }
+        }
+
+        // Confine reads to the next length bytes; returns the limit to restore
+        int pushLimit(int length) {
+            int outer = limit;
+            limit = position + length;
+            return outer;
+        }
+
+        void popLimit(int outer) {
+            if (position != limit) {
+                throw new MessageConversionException("Nested value ends at offset " + position
+                        + " but its length prefix says " + limit);
+            }
+            limit = outer;
+        }
+
+        private void skipBytes(int count) {
+            require(count);
+            position += count;
+        }
+
+        private void require(int count) {
+            if (limit - position < count) {
+                throw new MessageConversionException("Binary payload truncated at offset " + position
+                        + ", " + count + " more bytes expected");
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.inventory.messaging;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * Compact binary payloads (see BinaryCodec) for the same DTOs that travel as JSON.
+ *
+ * No type header is sent: like the JSON converter with INFERRED type precedence, the body is
+ * decoded into the listener's parameter type (the element type for batch listeners).
+ */
+public class CompactBinaryMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-inventory-binary";
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = BinaryCodec.encode(object);
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            return new Message(body, messageProperties);
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Cannot encode " + object.getClass().getName() + " as binary", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        Class<?> type = targetType(message.getMessageProperties().getInferredArgumentType());
+        try {
+            return BinaryCodec.decode(message.getBody(), type);
+        } catch (RuntimeException e) {
+            throw new MessageConversionException("Cannot decode binary payload as " + type.getName(), e);
+        }
+    }
+
+    private static Class<?> targetType(Type inferred) {
+        Type type = inferred instanceof ParameterizedType parameterized ? parameterized.getRawType() : inferred;
+        if (type instanceof Class<?> target && target != Object.class && !target.isInterface()) {
+            return target;
+        }
+        throw new MessageConversionException("Binary payloads need a concrete listener parameter type, got " + inferred);
+    }
+}
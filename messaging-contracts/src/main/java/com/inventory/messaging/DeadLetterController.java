@@ -0,0 +1,80 @@
+package com.inventory.messaging;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.inventory.messaging.DeadLetterReplayer.ParkedQueue;
+import com.inventory.messaging.DeadLetterReplayer.ReplayProgress;
+
+/**
+ * Dead-letter endpoints of a service, under messaging.dead-letters.path
+ * (e.g. /api/warehouse/dead-letters). Each service registers it as a bean next to its DeadLetterReplayer.
+ *
+ * A replay runs in the background: the POST answers 202 with the replay's progress and a
+ * Location to poll until its state is COMPLETED, INTERRUPTED or FAILED.
+ */
+@RestController
+@RequestMapping("${messaging.dead-letters.path}")
+@CrossOrigin(origins = "*")
+public class DeadLetterController {
+
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final String path;
+
+    public DeadLetterController(DeadLetterReplayer deadLetterReplayer, String path) {
+        this.deadLetterReplayer = deadLetterReplayer;
+        this.path = path;
+    }
+
+    /**
+     * Parked message count per queue this service consumes
+     */
+    @GetMapping
+    public List<ParkedQueue> parked() {
+        return deadLetterReplayer.parked();
+    }
+
+    /**
+     * Start putting up to max parked messages back on their queue, in throttled batches
+     * (once the cause is fixed)
+     */
+    @PostMapping("/{queue}/replay")
+    public ResponseEntity<ReplayProgress> replay(@PathVariable String queue,
+                                                 @RequestParam(defaultValue = "1000") int max) {
+        if (!deadLetterReplayer.handles(queue)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No dead letters are kept for " + queue);
+        }
+        ReplayProgress progress = deadLetterReplayer.start(queue, max);
+        return ResponseEntity.accepted()
+                .location(URI.create(path + "/replays/" + progress.id()))
+                .body(progress);
+    }
+
+    /**
+     * Recent replays, newest first
+     */
+    @GetMapping("/replays")
+    public List<ReplayProgress> replays() {
+        return deadLetterReplayer.recent();
+    }
+
+    @GetMapping("/replays/{id}")
+    public ReplayProgress replayProgress(@PathVariable String id) {
+        ReplayProgress progress = deadLetterReplayer.progress(id);
+        if (progress == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No replay " + id);
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,119 @@
+package com.inventory.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+/**
+ * Points queues at the dead-letter exchange through RabbitMQ policies ("dead-letter.{queue}"), one per
+ * queue so the dead-letter routing key can be the queue's own name.
+ *
+ * Unlike x-dead-letter-* arguments a policy also applies to a queue that already exists, so the
+ * queues keep their plain declaration and nothing has to be deleted to pick it up. The policies are
+ * set through the management API (messaging.dead-letters.management-url) on start, retried every
+ * RETRY_MS until it answers. They live in the broker: only until a fresh broker has them is a
+ * rejected message dropped instead of parked.
+ */
+public class DeadLetterPolicies implements SmartLifecycle {
+
+    private static final Log log = LogFactory.getLog(DeadLetterPolicies.class);
+    private static final long RETRY_MS = 10_000;
+
+    private final RestClient managementApi;
+    private final String virtualHost;
+    private final List<String> queues;
+    private final ExecutorService runner;
+    private volatile boolean running;
+
+    public DeadLetterPolicies(RestClient.Builder restClientBuilder, String managementUrl, RabbitProperties rabbit,
+                              List<String> queues) {
+        DefaultUriBuilderFactory uris = new DefaultUriBuilderFactory(managementUrl);
+        // The default virtual host "/" has to travel as %2F
+        uris.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.VALUES_ONLY);
+        this.managementApi = restClientBuilder
+                .uriBuilderFactory(uris)
+                .defaultHeaders(headers -> headers.setBasicAuth(rabbit.determineUsername(), rabbit.determinePassword()))
+                .build();
+        this.virtualHost = Objects.requireNonNullElse(rabbit.determineVirtualHost(), "/");
+        this.queues = List.copyOf(queues);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dead-letter-policies");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static String policyName(String queue) {
+        return "dead-letter." + queue;
+    }
+
+    /**
+     * Set the policy of one queue; throws when the management API refuses it or cannot be reached
+     */
+    public void apply(String queue) {
+        managementApi.put()
+                .uri("/api/policies/{vhost}/{name}", virtualHost, policyName(queue))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                        "pattern", "^" + queue.replace(".", "\\.") + "$",
+                        "apply-to", "queues",
+                        "definition", Map.of(
+                                "dead-letter-exchange", DeadLetters.EXCHANGE,
+                                "dead-letter-routing-key", queue)))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        runner.execute(this::applyAll);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        runner.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void applyAll() {
+        List<String> pending = new ArrayList<>(queues);
+        while (!pending.isEmpty()) {
+            String queue = pending.get(0);
+            try {
+                apply(queue);
+                pending.remove(0);
+                log.info("Dead-letter policy set for " + queue);
+            } catch (RestClientException e) {
+                if (!running) {
+                    // Interrupted by stop()
+                    return;
+                }
+                log.error("Could not set the dead-letter policy of " + queue + ", retrying in " + RETRY_MS + " ms: "
+                        + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.inventory.messaging;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+
+/**
+ * Moves parked messages ("{queue}.dlq") back into their queue for another round of delivery.
+ *
+ * Messages move in batches of batch-size, with pause-ms between batches so a replay does not
+ * flood the consumers it feeds. Within a batch each message is republished first and the parked
+ * copy acked only after that (after the broker confirmed it, when publisher confirms are on):
+ * a crash mid-batch can deliver a message twice but never loses one, which the consumers
+ * tolerate since redelivered orders and status updates are no-ops.
+ *
+ * Replays started through start() run one at a time on the replayer's own thread, so a long
+ * replay never holds a request thread; its progress is kept for the last MAX_JOBS replays.
+ */
+public class DeadLetterReplayer {
+
+    private static final Log log = LogFactory.getLog(DeadLetterReplayer.class);
+    private static final long CONFIRM_TIMEOUT_MS = 10_000;
+    private static final int MAX_JOBS = 100;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final List<String> queues;
+    private final int batchSize;
+    private final long pauseMs;
+    private final ExecutorService runner;
+
+    // Replays by id, oldest first, guarded by itself
+    private final Map<String, ReplayJob> jobs = new LinkedHashMap<>();
+
+    public DeadLetterReplayer(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin, List<String> queues,
+                              int batchSize, long pauseMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.queues = List.copyOf(queues);
+        this.batchSize = Math.max(batchSize, 1);
+        this.pauseMs = pauseMs;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dead-letter-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues whose parked messages this service may replay (the ones it consumes)
+     */
+    public boolean handles(String queue) {
+        return queues.contains(queue);
+    }
+
+    /**
+     * Parked message count per queue
+     */
+    public List<ParkedQueue> parked() {
+        return queues.stream()
+                .map(queue -> new ParkedQueue(queue, DeadLetters.dlqName(queue), countOf(DeadLetters.dlqName(queue))))
+                .toList();
+    }
+
+    /**
+     * Queue a replay of up to max parked messages and return at once. A replay of the same queue
+     * that has not finished yet is returned instead of starting a second one.
+     */
+    public ReplayProgress start(String queue, int max) {
+        if (!handles(queue)) {
+            throw new IllegalArgumentException("No parked messages are kept for " + queue);
+        }
+        ReplayJob job;
+        synchronized (jobs) {
+            for (ReplayJob existing : jobs.values()) {
+                if (existing.queue.equals(queue) && !existing.isFinished()) {
+                    return existing.progress();
+                }
+            }
+            job = new ReplayJob(UUID.randomUUID().toString(), queue, max);
+            jobs.put(job.id, job);
+            if (jobs.size() > MAX_JOBS) {
+                jobs.values().removeIf(old -> old.isFinished() && jobs.size() > MAX_JOBS);
+            }
+        }
+        try {
+            runner.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id);
+            }
+            throw new IllegalStateException("Shutting down, replay of " + queue + " not started", e);
+        }
+        return job.progress();
+    }
+
+    /**
+     * Progress of a replay started by start(), null if unknown or forgotten
+     */
+    public ReplayProgress progress(String id) {
+        synchronized (jobs) {
+            ReplayJob job = jobs.get(id);
+            return job == null ? null : job.progress();
+        }
+    }
+
+    /**
+     * Recent replays, newest first
+     */
+    public List<ReplayProgress> recent() {
+        List<ReplayProgress> result = new ArrayList<>();
+        synchronized (jobs) {
+            jobs.values().forEach(job -> result.add(0, job.progress()));
+        }
+        return result;
+    }
+
+    /**
+     * Stop the running replay (inferred as the bean's destroy method); moved messages stay moved
+     */
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void run(ReplayJob job) {
+        job.state = ReplayState.RUNNING;
+        try {
+            ReplayResult result = replay(job.queue, job.max, moved -> job.replayed += moved);
+            job.remaining = result.remaining();
+            job.state = ReplayState.COMPLETED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.state = ReplayState.INTERRUPTED;
+        } catch (RuntimeException e) {
+            log.error("Replay of " + job.queue + " failed after " + job.replayed + " messages", e);
+            job.error = e.getMessage();
+            job.state = ReplayState.FAILED;
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Republish up to max parked messages of a queue, oldest first, reporting each moved batch
+     */
+    private ReplayResult replay(String queue, int max, IntConsumer onBatch) throws InterruptedException {
+        String parkingQueue = DeadLetters.dlqName(queue);
+        int replayed = 0;
+        while (replayed < max) {
+            int limit = Math.min(batchSize, max - replayed);
+            Integer moved = rabbitTemplate.execute(channel -> moveBatch(channel, parkingQueue, queue, limit));
+            replayed += moved;
+            onBatch.accept(moved);
+            if (moved < limit) {
+                break;  // Parking queue drained
+            }
+            if (replayed < max) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        long remaining = countOf(parkingQueue);
+        log.info("Replayed " + replayed + " parked messages into " + queue + ", " + remaining + " left");
+        return new ReplayResult(queue, replayed, remaining);
+    }
+
+    private int moveBatch(Channel channel, String from, String to, int limit) throws IOException, InterruptedException {
+        int moved = 0;
+        long lastTag = -1;
+        while (moved < limit) {
+            GetResponse response = channel.basicGet(from, false);
+            if (response == null) {
+                break;
+            }
+            channel.basicPublish("", to, false, withFreshRetries(response.getProps()), response.getBody());
+            lastTag = response.getEnvelope().getDeliveryTag();
+            moved++;
+        }
+        if (lastTag >= 0) {
+            if (rabbitTemplate.getConnectionFactory().isSimplePublisherConfirms()) {
+                try {
+                    channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MS);
+                } catch (TimeoutException e) {
+                    throw new IOException("Broker did not confirm the replayed messages", e);
+                }
+            }
+            channel.basicAck(lastTag, true);
+        }
+        return moved;
+    }
+
+    // The replayed message starts over with a full set of retries
+    private static AMQP.BasicProperties withFreshRetries(AMQP.BasicProperties properties) {
+        Map<String, Object> headers = properties.getHeaders() == null ? new HashMap<>() : new HashMap<>(properties.getHeaders());
+        headers.remove(DeadLetters.RETRY_COUNT_HEADER);
+        headers.remove(DeadLetters.EXCEPTION_HEADER);
+        return properties.builder().headers(headers).build();
+    }
+
+    private long countOf(String queue) {
+        QueueInformation info = amqpAdmin.getQueueInfo(queue);
+        return info == null ? 0 : info.getMessageCount();
+    }
+
+    public record ParkedQueue(String queue, String parkingQueue, long messages) {
+    }
+
+    public record ReplayResult(String queue, int replayed, long remaining) {
+    }
+
+    public enum ReplayState {
+        QUEUED, RUNNING, COMPLETED, INTERRUPTED, FAILED
+    }
+
+    /**
+     * Point-in-time view of a replay; remaining is only known once it completed
+     */
+    public record ReplayProgress(String id, String queue, int max, ReplayState state, int replayed,
+                                 Long remaining, String error, Instant startedAt, Instant finishedAt) {
+    }
+
+    // Written by the replay thread only, read by requests through progress()
+    private static final class ReplayJob {
+        final String id;
+        final String queue;
+        final int max;
+        final Instant startedAt = Instant.now();
+        volatile ReplayState state = ReplayState.QUEUED;
+        volatile int replayed;
+        volatile Long remaining;
+        volatile String error;
+        volatile Instant finishedAt;
+
+        ReplayJob(String id, String queue, int max) {
+            this.id = id;
+            this.queue = queue;
+            this.max = max;
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        ReplayProgress progress() {
+            return new ReplayProgress(id, queue, max, state, replayed, remaining, error, startedAt, finishedAt);
+        }
+    }
+}
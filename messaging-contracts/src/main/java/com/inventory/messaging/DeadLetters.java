@@ -0,0 +1,96 @@
+package com.inventory.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+/**
+ * Dead-letter topology shared by every service: one direct exchange, and for each queue that
+ * must not lose messages a "{queue}.dlq" (the parking lot) bound to it under the queue's own name.
+ *
+ * The consuming service may add retry queues "{queue}.retry.{n}": messages wait there for the
+ * queue's TTL and then dead-letter back into the queue through the default exchange, so the delay
+ * costs no consumer thread.
+ *
+ * The queues themselves are declared without dead-letter arguments, the same as before they had a
+ * parking lot: DeadLetterPolicies routes their rejected messages to the exchange, and RabbitMQ
+ * would refuse to redeclare an existing queue with arguments it was not created with.
+ */
+public final class DeadLetters {
+
+    public static final String EXCHANGE = "dead.letter.exchange";
+    public static final String DLQ_SUFFIX = ".dlq";
+    public static final String RETRY_SUFFIX = ".retry.";
+
+    // Set on messages that went through the retry queues / were parked after failing
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+
+    private DeadLetters() {
+    }
+
+    public static DirectExchange exchange() {
+        return new DirectExchange(EXCHANGE, true, false);
+    }
+
+    /**
+     * Durable queue whose rejected messages move to its dead-letter queue once its consumer has
+     * set the queue's DeadLetterPolicies policy
+     */
+    public static Queue queue(String name) {
+        return QueueBuilder.durable(name).build();
+    }
+
+    public static String dlqName(String queueName) {
+        return queueName + DLQ_SUFFIX;
+    }
+
+    public static String retryQueueName(String queueName, int attempt) {
+        return queueName + RETRY_SUFFIX + attempt;
+    }
+
+    /**
+     * The retry queues of one queue: retry-queues of them, delays growing by retry-queue-multiplier.
+     * Only the consuming service declares them, and a TTL cannot change on an existing queue.
+     */
+    public static Declarables retryQueues(String queueName, ListenerSettings settings) {
+        List<Declarable> queues = new ArrayList<>(settings.getRetryQueues());
+        double delay = settings.getRetryQueueDelayMs();
+        for (int attempt = 1; attempt <= settings.getRetryQueues(); attempt++) {
+            queues.add(QueueBuilder.durable(retryQueueName(queueName, attempt))
+                    .ttl((int) Math.min(delay, Integer.MAX_VALUE))
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(queueName)
+                    .build());
+            delay *= settings.getRetryQueueMultiplier();
+        }
+        return new Declarables(queues);
+    }
+
+    /**
+     * The dead-letter queue of one queue and its binding
+     */
+    public static Declarables deadLetterQueue(String queueName) {
+        Queue dlq = QueueBuilder.durable(dlqName(queueName)).build();
+        Binding binding = BindingBuilder.bind(dlq).to(exchange()).with(queueName);
+        return new Declarables(dlq, binding);
+    }
+
+    /**
+     * Declare the dead-letter queue of a queue created at runtime (outside the bean declarations)
+     */
+    public static void declareDeadLetterQueue(AmqpAdmin admin, String queueName) {
+        admin.declareExchange(exchange());
+        Declarables declarables = deadLetterQueue(queueName);
+        declarables.getDeclarablesByType(Queue.class).forEach(admin::declareQueue);
+        declarables.getDeclarablesByType(Binding.class).forEach(admin::declareBinding);
+    }
+}
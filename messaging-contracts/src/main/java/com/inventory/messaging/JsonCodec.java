@@ -0,0 +1,60 @@
+package com.inventory.messaging;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * JSON reader and writer for one message type, built once and shared.
+ *
+ * ObjectReader/ObjectWriter are immutable and thread-safe, so each type resolves its
+ * (de)serializers on first use only; later messages skip the type lookup that
+ * ObjectMapper.readValue/writeValueAsBytes repeat on every call.
+ */
+public final class JsonCodec<T> {
+
+    // Same behaviour as Spring Boot's mapper: java.time support, ISO dates, unknown properties ignored
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private static final Map<Type, JsonCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    private JsonCodec(Type type) {
+        this.reader = MAPPER.readerFor(MAPPER.constructType(type));
+        this.writer = MAPPER.writerFor(MAPPER.constructType(type));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> JsonCodec<T> of(Class<T> type) {
+        return (JsonCodec<T>) of((Type) type);
+    }
+
+    /**
+     * Codec for a generic type such as a listener's List&lt;StockUpdateMessage&gt; parameter
+     */
+    public static JsonCodec<?> of(Type type) {
+        return CODECS.computeIfAbsent(type, JsonCodec::new);
+    }
+
+    public T read(byte[] json) throws IOException {
+        return reader.readValue(json);
+    }
+
+    public byte[] write(T value) throws IOException {
+        return writer.writeValueAsBytes(value);
+    }
+}
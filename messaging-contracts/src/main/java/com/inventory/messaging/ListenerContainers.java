@@ -0,0 +1,157 @@
+package com.inventory.messaging;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+
+/**
+ * Builds a listener container factory from ListenerSettings, on top of Boot's spring.rabbitmq.listener defaults.
+ *
+ * Failures are retried in the consumer with exponential backoff (max-attempts). After that, with
+ * retry-queues set, the message is republished to the next "{queue}.retry.{n}" and comes back once
+ * that queue's TTL expires; when those are used up too it is parked in "{queue}.dlq" with the error
+ * in a header. Without retry queues, and for errors the container never retries (unconvertible
+ * bodies), the message or the whole batch is rejected without requeue: it moves to the queue's
+ * dead-letter queue if it has one (DeadLetters) and is dropped otherwise, instead of being
+ * redelivered forever.
+ */
+public final class ListenerContainers {
+
+    private static final Log log = LogFactory.getLog(ListenerContainers.class);
+
+    private ListenerContainers() {
+    }
+
+    public static SimpleRabbitListenerContainerFactory factory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ListenerSettings settings) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+
+        factory.setConcurrentConsumers(settings.getConcurrency());
+        if (settings.getMaxConcurrency() > settings.getConcurrency()) {
+            // Consumers are added one at a time while all of them stay busy, and removed again when idle
+            factory.setMaxConcurrentConsumers(settings.getMaxConcurrency());
+            factory.setStartConsumerMinInterval(settings.getScaleUpIntervalMs());
+            factory.setStopConsumerMinInterval(settings.getScaleDownIntervalMs());
+        }
+
+        if (settings.isBatch()) {
+            factory.setBatchListener(true);
+            factory.setConsumerBatchEnabled(true);
+            factory.setBatchSize(settings.getBatchSize());
+            factory.setReceiveTimeout(settings.getBatchMaxWaitMs());
+        }
+        factory.setPrefetchCount(Math.max(settings.getPrefetch(), settings.getBatchSize()));
+
+        factory.setAcknowledgeMode(settings.getAckMode());
+        factory.setDefaultRequeueRejected(false);
+        boolean retryQueues = settings.getRetryQueues() > 0;
+        if ((settings.getMaxAttempts() > 1 || retryQueues) && settings.getAckMode() != AcknowledgeMode.MANUAL) {
+            factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                    .maxAttempts(Math.max(settings.getMaxAttempts(), 1))
+                    .backOffOptions(settings.getInitialIntervalMs(), settings.getMultiplier(), settings.getMaxIntervalMs())
+                    .recoverer(retryQueues
+                            ? new RetryQueueRecoverer(new RabbitTemplate(connectionFactory), settings.getRetryQueues())
+                            : new RejectRecoverer())
+                    .build());
+        }
+        return factory;
+    }
+
+    /**
+     * Sends each failed message to its next retry queue, or parks it once retry-queues are used up.
+     * The originals are acked only after the broker confirmed the copies (when publisher confirms are on).
+     */
+    static class RetryQueueRecoverer implements MessageBatchRecoverer {
+
+        private static final int MAX_EXCEPTION_LENGTH = 1_000;
+        private static final long CONFIRM_TIMEOUT_MS = 10_000;
+
+        private final RabbitTemplate template;
+        private final int retryQueues;
+        private final boolean confirms;
+
+        RetryQueueRecoverer(RabbitTemplate template, int retryQueues) {
+            this.template = template;
+            this.retryQueues = retryQueues;
+            this.confirms = template.getConnectionFactory().isSimplePublisherConfirms();
+        }
+
+        @Override
+        public void recover(Message message, Throwable cause) {
+            recover(List.of(message), cause);
+        }
+
+        @Override
+        public void recover(List<Message> messages, Throwable cause) {
+            template.invoke(operations -> {
+                for (Message message : messages) {
+                    operations.send("", nextQueue(message, cause), message);
+                }
+                if (confirms) {
+                    operations.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MS);
+                }
+                return null;
+            });
+        }
+
+        private String nextQueue(Message message, Throwable cause) {
+            MessageProperties properties = message.getMessageProperties();
+            String queue = properties.getConsumerQueue();
+            Object header = properties.getHeader(DeadLetters.RETRY_COUNT_HEADER);
+            int retries = header instanceof Number number ? number.intValue() : 0;
+
+            // A received message only carries receivedDeliveryMode; without this the copy would be transient
+            properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+            if (retries < retryQueues) {
+                properties.setHeader(DeadLetters.RETRY_COUNT_HEADER, retries + 1);
+                log.info("Delivery of message from " + queue + " failed, retry " + (retries + 1) + " of " + retryQueues + " scheduled");
+                return DeadLetters.retryQueueName(queue, retries + 1);
+            }
+            properties.setHeader(DeadLetters.EXCEPTION_HEADER, describe(cause));
+            log.warn("Retries exhausted, parking message from " + queue + " in " + DeadLetters.dlqName(queue), cause);
+            return DeadLetters.dlqName(queue);
+        }
+
+        private static String describe(Throwable cause) {
+            Throwable root = cause;
+            while (root.getCause() != null && root.getCause() != root) {
+                root = root.getCause();
+            }
+            String text = root.getClass().getSimpleName() + ": " + root.getMessage();
+            return text.length() > MAX_EXCEPTION_LENGTH ? text.substring(0, MAX_EXCEPTION_LENGTH) : text;
+        }
+    }
+
+    /**
+     * Gives up on a message or a whole batch: the container rejects it without requeue
+     */
+    static class RejectRecoverer implements MessageBatchRecoverer {
+
+        @Override
+        public void recover(Message message, Throwable cause) {
+            log.warn("Retries exhausted, rejecting message from " + message.getMessageProperties().getConsumerQueue(), cause);
+            throw new AmqpRejectAndDontRequeueException("Retries exhausted", cause);
+        }
+
+        @Override
+        public void recover(List<Message> messages, Throwable cause) {
+            log.warn("Retries exhausted, rejecting batch of " + messages.size() + " messages", cause);
+            throw new AmqpRejectAndDontRequeueException("Retries exhausted", cause);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.inventory.messaging;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+
+/**
+ * Tuning of one @RabbitListener container, bound from messaging.listeners.{name}.*
+ */
+public class ListenerSettings {
+
+    // Consumers: concurrency to start with, up to max-concurrency while the queue keeps them busy
+    private int concurrency = 1;
+    private int maxConcurrency = 0;  // 0 = fixed at concurrency
+    private long scaleUpIntervalMs = 10_000;
+    private long scaleDownIntervalMs = 60_000;
+
+    private int prefetch = 250;
+
+    // batch-size > 1 makes it a batch listener: up to batch-size messages or whatever arrived within batch-max-wait-ms
+    private int batchSize = 1;
+    private long batchMaxWaitMs = 1_000;
+
+    // AUTO acks after the listener returns (one multiple-ack per batch), MANUAL leaves it to the listener
+    private AcknowledgeMode ackMode = AcknowledgeMode.AUTO;
+
+    // Attempts in total before the message is rejected to its dead-letter queue, with exponential backoff
+    private int maxAttempts = 3;
+    private long initialIntervalMs = 1_000;
+    private double multiplier = 2.0;
+    private long maxIntervalMs = 10_000;
+
+    // Then up to retry-queues more deliveries through "{queue}.retry.{n}" TTL queues, each delay multiplier
+    // times the previous one, before the message is parked in "{queue}.dlq"; 0 = park right away
+    private int retryQueues = 0;
+    private long retryQueueDelayMs = 5_000;
+    private double retryQueueMultiplier = 6.0;
+
+    public static ListenerSettings single() {
+        return new ListenerSettings();
+    }
+
+    public static ListenerSettings batch(int batchSize, long batchMaxWaitMs) {
+        ListenerSettings settings = new ListenerSettings();
+        settings.setBatchSize(batchSize);
+        settings.setBatchMaxWaitMs(batchMaxWaitMs);
+        return settings;
+    }
+
+    public boolean isBatch() {
+        return batchSize > 1;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public long getScaleUpIntervalMs() {
+        return scaleUpIntervalMs;
+    }
+
+    public void setScaleUpIntervalMs(long scaleUpIntervalMs) {
+        this.scaleUpIntervalMs = scaleUpIntervalMs;
+    }
+
+    public long getScaleDownIntervalMs() {
+        return scaleDownIntervalMs;
+    }
+
+    public void setScaleDownIntervalMs(long scaleDownIntervalMs) {
+        this.scaleDownIntervalMs = scaleDownIntervalMs;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchMaxWaitMs() {
+        return batchMaxWaitMs;
+    }
+
+    public void setBatchMaxWaitMs(long batchMaxWaitMs) {
+        this.batchMaxWaitMs = batchMaxWaitMs;
+    }
+
+    public AcknowledgeMode getAckMode() {
+        return ackMode;
+    }
+
+    public void setAckMode(AcknowledgeMode ackMode) {
+        this.ackMode = ackMode;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialIntervalMs() {
+        return initialIntervalMs;
+    }
+
+    public void setInitialIntervalMs(long initialIntervalMs) {
+        this.initialIntervalMs = initialIntervalMs;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    public long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    public void setMaxIntervalMs(long maxIntervalMs) {
+        this.maxIntervalMs = maxIntervalMs;
+    }
+
+    public int getRetryQueues() {
+        return retryQueues;
+    }
+
+    public void setRetryQueues(int retryQueues) {
+        this.retryQueues = retryQueues;
+    }
+
+    public long getRetryQueueDelayMs() {
+        return retryQueueDelayMs;
+    }
+
+    public void setRetryQueueDelayMs(long retryQueueDelayMs) {
+        this.retryQueueDelayMs = retryQueueDelayMs;
+    }
+
+    public double getRetryQueueMultiplier() {
+        return retryQueueMultiplier;
+    }
+
+    public void setRetryQueueMultiplier(double retryQueueMultiplier) {
+        this.retryQueueMultiplier = retryQueueMultiplier;
+    }
+}
@@ -0,0 +1,49 @@
+package com.inventory.messaging;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * JSON payloads through the cached per-type JsonCodec.
+ *
+ * Reads into the listener's parameter type, like Jackson2JsonMessageConverter with INFERRED
+ * type precedence. The __TypeId__ header is still written so consumers on older builds keep
+ * reading these messages.
+ */
+public class TypedJsonMessageConverter extends AbstractMessageConverter {
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = ((JsonCodec) JsonCodec.of(object.getClass())).write(object);
+            messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            messageProperties.setContentEncoding(StandardCharsets.UTF_8.name());
+            messageProperties.setContentLength(body.length);
+            messageProperties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, object.getClass().getName());
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Cannot encode " + object.getClass().getName() + " as JSON", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        Type type = message.getMessageProperties().getInferredArgumentType();
+        if (type == null || type == Object.class) {
+            throw new MessageConversionException("JSON payloads need a typed listener parameter, got " + type);
+        }
+        try {
+            return JsonCodec.of(type).read(message.getBody());
+        } catch (IOException e) {
+            throw new MessageConversionException("Cannot decode JSON payload as " + type.getTypeName(), e);
+        }
+    }
+}
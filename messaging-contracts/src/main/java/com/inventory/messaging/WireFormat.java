@@ -0,0 +1,30 @@
+package com.inventory.messaging;
+
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Wire format of outgoing RabbitMQ messages (messaging.wire-format).
+ *
+ * Incoming messages are always decoded by their content type, so JSON and binary senders can
+ * share a queue: roll out every consumer first, then switch the producers to BINARY.
+ */
+public enum WireFormat {
+    JSON,
+    BINARY;
+
+    /**
+     * Converter that writes this format and reads both
+     */
+    public MessageConverter messageConverter() {
+        TypedJsonMessageConverter json = new TypedJsonMessageConverter();
+        CompactBinaryMessageConverter binary = new CompactBinaryMessageConverter();
+
+        ContentTypeDelegatingMessageConverter converter =
+                new ContentTypeDelegatingMessageConverter(this == BINARY ? binary : json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(CompactBinaryMessageConverter.CONTENT_TYPE, binary);
+        return converter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.inventory.messaging.dto;
+
+/**
+ * The part of order-service's accepted order that retailers keep for tracking
+ */
+public record ItemResponse(String orderId, String status, Long productId, String productName, int quantity, float price) {
+}
@@ -0,0 +1,7 @@
+package com.inventory.messaging.dto;
+
+/**
+ * An order routed by order-service to the warehouse that will ship it
+ */
+public record OrderMessage(String orderId, Long productId, String productName, int quantity, Long retailerId) {
+}
@@ -0,0 +1,16 @@
+package com.inventory.messaging.dto;
+
+/**
+ * Order status change, sent by warehouses to order-service and forwarded to the retailer.
+ * quantity is the number of units delivered by a PARTIALLY_COMPLETED order, 0 for every other status.
+ */
+public record OrderUpdateDTO(String orderId, String status, String message, float price, int quantity) {
+
+    public OrderUpdateDTO(String orderId, String status, String message, float price) {
+        this(orderId, status, message, price, 0);
+    }
+
+    public OrderUpdateDTO withPrice(float price) {
+        return new OrderUpdateDTO(orderId, status, message, price, quantity);
+    }
+}
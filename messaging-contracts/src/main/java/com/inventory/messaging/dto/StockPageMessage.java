@@ -0,0 +1,13 @@
+package com.inventory.messaging.dto;
+
+import java.util.List;
+
+/**
+ * One page of a warehouse's full stock, sent in reply to a StockResyncRequest
+ */
+public record StockPageMessage(String requestId, Long warehouseId, int page, boolean last, List<StockUpdateMessage> items) {
+
+    public StockPageMessage {
+        items = items == null ? List.of() : items;
+    }
+}
@@ -0,0 +1,7 @@
+package com.inventory.messaging.dto;
+
+/**
+ * Asks every warehouse to stream its full stock back as StockPageMessages
+ */
+public record StockResyncRequest(String requestId, int pageSize) {
+}
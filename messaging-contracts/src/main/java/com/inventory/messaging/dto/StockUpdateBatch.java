@@ -0,0 +1,13 @@
+package com.inventory.messaging.dto;
+
+import java.util.List;
+
+/**
+ * Many stock updates from one warehouse in a single message (bulk imports, coalesced updates)
+ */
+public record StockUpdateBatch(Long warehouseId, List<StockUpdateMessage> items) {
+
+    public StockUpdateBatch {
+        items = items == null ? List.of() : items;
+    }
+}
@@ -0,0 +1,13 @@
+package com.inventory.messaging.dto;
+
+/**
+ * Current stock of one product in one warehouse
+ */
+public record StockUpdateMessage(
+        Long warehouseId,
+        Long productId,
+        String productName,
+        int newStock,
+        float price,
+        long version) {  // Per-warehouse monotonic, 0 = unversioned (older senders)
+}
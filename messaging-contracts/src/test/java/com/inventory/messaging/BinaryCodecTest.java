@@ -0,0 +1,191 @@
+package com.inventory.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import com.inventory.messaging.dto.OrderUpdateDTO;
+import com.inventory.messaging.dto.StockPageMessage;
+import com.inventory.messaging.dto.StockUpdateBatch;
+import com.inventory.messaging.dto.StockUpdateMessage;
+
+class BinaryCodecTest {
+
+    enum Color { RED, GREEN }
+
+    record Part(String name, int count) {
+    }
+
+    record Everything(int anInt, short aShort, byte aByte, long aLong, boolean aBoolean, LocalDateTime time,
+                      float aFloat, double aDouble, String text, Color color, Part part, List<Part> parts,
+                      List<String> tags, Integer missing) {
+    }
+
+    // The same properties as a bean, like another service's copy of a DTO
+    static class PartBean {
+        String name;
+        int count;
+    }
+
+    record WithExtra(String name, int count, String note, List<Long> ids) {
+    }
+
+    record WithParts(List<Part> parts) {
+    }
+
+    record LongCount(String name, long count) {
+    }
+
+    record TimeAsNumber(long time) {
+    }
+
+    record Timed(LocalDateTime time) {
+    }
+
+    @Test
+    void roundTripsEveryKind() {
+        Everything value = new Everything(-7, (short) 300, (byte) -2, Long.MIN_VALUE, true,
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_000), 1.5f, -2.25, "héllo ✓", Color.GREEN,
+                new Part("bolt", 3), List.of(new Part("a", 1), new Part("b", Integer.MAX_VALUE)),
+                List.of("x", ""), null);
+
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(value), Everything.class)).isEqualTo(value);
+    }
+
+    @Test
+    void roundTripsTheMessageDtos() {
+        StockUpdateMessage update = new StockUpdateMessage(1L, 42L, "Laptop", 17, 999.5f, 1L << 50);
+        StockUpdateBatch batch = new StockUpdateBatch(1L, List.of(update, new StockUpdateMessage(1L, 43L, "Desk", 0, 250f, 0)));
+        StockPageMessage page = new StockPageMessage("resync-1", 2L, 3, true, List.of(update));
+        OrderUpdateDTO orderUpdate = new OrderUpdateDTO("o-1", "PARTIALLY_COMPLETED", "1 of 2 parts failed", 12.5f, 4);
+
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(batch), StockUpdateBatch.class)).isEqualTo(batch);
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(page), StockPageMessage.class)).isEqualTo(page);
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(orderUpdate), OrderUpdateDTO.class)).isEqualTo(orderUpdate);
+    }
+
+    @Test
+    void roundTripsLongBodiesWithWideLengthPrefixes() {
+        String name = "n".repeat(20_000);
+        List<Part> parts = IntStream.range(0, 2_000).mapToObj(i -> new Part(name.substring(i), i)).toList();
+        WithParts value = new WithParts(parts);
+
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(value), WithParts.class)).isEqualTo(value);
+    }
+
+    @Test
+    void readsBeansAndRecordsWithTheSamePropertyNames() {
+        PartBean bean = BinaryCodec.decode(BinaryCodec.encode(new Part("nut", 9)), PartBean.class);
+        assertThat(bean.name).isEqualTo("nut");
+        assertThat(bean.count).isEqualTo(9);
+
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(bean), Part.class)).isEqualTo(new Part("nut", 9));
+    }
+
+    @Test
+    void skipsUnknownPropertiesAndDefaultsMissingOnes() {
+        byte[] newer = BinaryCodec.encode(new WithExtra("nut", 9, "extra", List.of(1L, 2L)));
+        assertThat(BinaryCodec.decode(newer, Part.class)).isEqualTo(new Part("nut", 9));
+
+        byte[] older = BinaryCodec.encode(new Part("nut", 9));
+        assertThat(BinaryCodec.decode(older, WithExtra.class)).isEqualTo(new WithExtra("nut", 9, null, null));
+    }
+
+    @Test
+    void rejectsAPropertyWhoseKindDrifted() {
+        byte[] asLong = BinaryCodec.encode(new LongCount("nut", 1L << 40));
+        assertThatThrownBy(() -> BinaryCodec.decode(asLong, Part.class))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("count");
+
+        byte[] asTime = BinaryCodec.encode(new Timed(LocalDateTime.of(2025, 1, 1, 0, 0)));
+        assertThatThrownBy(() -> BinaryCodec.decode(asTime, TimeAsNumber.class))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("time");
+    }
+
+    @Test
+    void rejectsTruncatedBodies() {
+        StockUpdateBatch batch = new StockUpdateBatch(1L, List.of(new StockUpdateMessage(1L, 42L, "Laptop", 17, 999.5f, 7)));
+        byte[] body = BinaryCodec.encode(batch);
+
+        // The batch is one warehouseId and one list, so every cut short of the end is inside a value
+        int listStart = BinaryCodec.encode(new StockUpdateBatch(1L, null)).length;
+        for (int length = listStart + 1; length < body.length; length++) {
+            byte[] truncated = Arrays.copyOf(body, length);
+            assertThatThrownBy(() -> BinaryCodec.decode(truncated, StockUpdateBatch.class))
+                    .as("cut at %d of %d", length, body.length)
+                    .isInstanceOf(MessageConversionException.class);
+        }
+    }
+
+    @Test
+    void neverFailsWithAnythingButAConversionError() {
+        byte[] body = BinaryCodec.encode(new Everything(1, (short) 2, (byte) 3, 4L, true, LocalDateTime.now(), 5f, 6d,
+                "seven", Color.RED, new Part("eight", 8), List.of(new Part("nine", 9)), List.of("ten"), 11));
+
+        for (int length = 0; length < body.length; length++) {
+            assertDecodesOrRejects(Arrays.copyOf(body, length));
+        }
+        for (int i = 0; i < body.length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                byte[] corrupt = body.clone();
+                corrupt[i] ^= (byte) (1 << bit);
+                assertDecodesOrRejects(corrupt);
+            }
+        }
+    }
+
+    @Test
+    void rejectsLengthPrefixesPastTheEnd() {
+        byte[] body = BinaryCodec.encode(new Part("nut", 9));
+        // The name's length prefix follows its tag; claim far more bytes than the body has
+        byte[] corrupt = body.clone();
+        corrupt[tagSize(body)] = 0x7F;
+
+        assertThatThrownBy(() -> BinaryCodec.decode(corrupt, Part.class))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("runs past the end");
+    }
+
+    @Test
+    void converterRoundTripsThroughAMessage() {
+        CompactBinaryMessageConverter converter = new CompactBinaryMessageConverter();
+        OrderUpdateDTO update = new OrderUpdateDTO("o-2", "COMPLETED", "Delivered", 3.5f);
+
+        Message message = converter.toMessage(update, new MessageProperties());
+        message.getMessageProperties().setInferredArgumentType(OrderUpdateDTO.class);
+
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(CompactBinaryMessageConverter.CONTENT_TYPE);
+        assertThat(converter.fromMessage(message)).isEqualTo(update);
+
+        Message truncated = new Message(Arrays.copyOf(message.getBody(), message.getBody().length - 1),
+                message.getMessageProperties());
+        assertThatThrownBy(() -> converter.fromMessage(truncated)).isInstanceOf(MessageConversionException.class);
+    }
+
+    private static void assertDecodesOrRejects(byte[] body) {
+        try {
+            BinaryCodec.decode(body, Everything.class);
+        } catch (MessageConversionException expected) {
+            // Rejected, as it should be when the bytes do not make sense
+        }
+    }
+
+    private static int tagSize(byte[] body) {
+        int size = 1;
+        while ((body[size - 1] & 0x80) != 0) {
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,72 @@
+package com.inventory.messaging;
+
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+class DeadLetterPoliciesTest {
+
+    private static final String MANAGEMENT_URL = "http://rabbitmq:15672";
+
+    private final RestClient.Builder restClientBuilder = RestClient.builder();
+    private final MockRestServiceServer managementApi = MockRestServiceServer.bindTo(restClientBuilder).build();
+    private DeadLetterPolicies policies;
+
+    @AfterEach
+    void stop() {
+        if (policies != null) {
+            policies.stop();
+        }
+    }
+
+    @Test
+    void setsOnePolicyPerQueueRoutingToItsParkingLot() {
+        managementApi.expect(requestTo(MANAGEMENT_URL + "/api/policies/%2F/dead-letter.status.update.queue"))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Basic Z3Vlc3Q6Z3Vlc3Q="))
+                .andExpect(jsonPath("$.pattern").value("^status\\.update\\.queue$"))
+                .andExpect(jsonPath("$['apply-to']").value("queues"))
+                .andExpect(jsonPath("$.definition['dead-letter-exchange']").value(DeadLetters.EXCHANGE))
+                .andExpect(jsonPath("$.definition['dead-letter-routing-key']").value("status.update.queue"))
+                .andRespond(withStatus(HttpStatus.CREATED));
+
+        policies(List.of("status.update.queue")).apply("status.update.queue");
+
+        managementApi.verify();
+    }
+
+    @Test
+    void setsThePoliciesOfEveryQueueOnStart() {
+        managementApi.expect(ExpectedCount.once(),
+                        requestTo(MANAGEMENT_URL + "/api/policies/%2F/dead-letter.order.accepted.queue"))
+                .andRespond(withSuccess());
+        managementApi.expect(ExpectedCount.once(),
+                        requestTo(MANAGEMENT_URL + "/api/policies/%2F/dead-letter.status.update.queue"))
+                .andRespond(withSuccess());
+
+        policies(List.of("order.accepted.queue", "status.update.queue")).start();
+
+        managementApi.verify(Duration.ofSeconds(5));
+    }
+
+    private DeadLetterPolicies policies(List<String> queues) {
+        policies = new DeadLetterPolicies(restClientBuilder, MANAGEMENT_URL, new RabbitProperties(), queues);
+        return policies;
+    }
+}
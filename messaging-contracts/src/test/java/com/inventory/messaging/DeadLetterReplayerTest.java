@@ -0,0 +1,184 @@
+package com.inventory.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.inventory.messaging.DeadLetterReplayer.ReplayProgress;
+import com.inventory.messaging.DeadLetterReplayer.ReplayState;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+
+class DeadLetterReplayerTest {
+
+    private static final String QUEUE = "status.update.queue";
+    private static final Duration TIMEOUT = Duration.ofSeconds(15);
+
+    private final Deque<GetResponse> parked = new ArrayDeque<>();
+    private final List<AMQP.BasicProperties> published = new CopyOnWriteArrayList<>();
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private DeadLetterReplayer replayer;
+
+    @AfterEach
+    void stop() {
+        if (replayer != null) {
+            replayer.shutdown();
+        }
+    }
+
+    @Test
+    void replaysInTheBackgroundAndReportsProgress() throws Exception {
+        park(250);
+        replayer = replayer(100, 100);
+
+        ReplayProgress started = replayer.start(QUEUE, 1000);
+
+        assertThat(started.state()).isIn(ReplayState.QUEUED, ReplayState.RUNNING);
+        assertThat(started.finishedAt()).isNull();
+        ReplayProgress done = awaitFinished(started.id());
+        assertThat(done.state()).isEqualTo(ReplayState.COMPLETED);
+        assertThat(done.replayed()).isEqualTo(250);
+        assertThat(done.remaining()).isZero();
+        assertThat(published).hasSize(250);
+        // Replayed messages start over with a full set of retries
+        assertThat(published).allSatisfy(properties -> assertThat(properties.getHeaders())
+                .doesNotContainKeys(DeadLetters.RETRY_COUNT_HEADER, DeadLetters.EXCEPTION_HEADER)
+                .containsEntry("keep", "me"));
+        assertThat(replayer.recent()).extracting(ReplayProgress::id).containsExactly(started.id());
+    }
+
+    @Test
+    void stopsAtMax() throws Exception {
+        park(30);
+        replayer = replayer(10, 0);
+
+        ReplayProgress done = awaitFinished(replayer.start(QUEUE, 25).id());
+
+        assertThat(done.replayed()).isEqualTo(25);
+        assertThat(published).hasSize(25);
+    }
+
+    @Test
+    void aQueueHasOneReplayAtATime() throws Exception {
+        park(50);
+        replayer = replayer(10, 60_000);
+
+        ReplayProgress first = replayer.start(QUEUE, 1000);
+        ReplayProgress second = replayer.start(QUEUE, 1000);
+
+        assertThat(second.id()).isEqualTo(first.id());
+        await().atMost(TIMEOUT).until(() -> replayer.progress(first.id()).replayed() == 10);
+
+        // Shutting down stops the replay between batches; what moved stays moved
+        replayer.shutdown();
+        ReplayProgress stopped = awaitFinished(first.id());
+        assertThat(stopped.state()).isEqualTo(ReplayState.INTERRUPTED);
+        assertThat(stopped.replayed()).isEqualTo(10);
+    }
+
+    @Test
+    void reportsAFailedReplay() {
+        replayer = new DeadLetterReplayer(rabbitTemplate, amqpAdmin, List.of(QUEUE), 10, 0);
+        when(rabbitTemplate.execute(any())).thenThrow(new AmqpConnectException(new IOException("broker down")));
+
+        ReplayProgress failed = awaitFinished(replayer.start(QUEUE, 1000).id());
+
+        assertThat(failed.state()).isEqualTo(ReplayState.FAILED);
+        assertThat(failed.error()).contains("broker down");
+    }
+
+    @Test
+    void rejectsQueuesItDoesNotConsume() {
+        replayer = replayer(10, 0);
+
+        assertThatThrownBy(() -> replayer.start("other.queue", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(replayer.progress("no-such-id")).isNull();
+    }
+
+    @Test
+    void controllerAnswersAcceptedWithWhereToPoll() throws Exception {
+        park(5);
+        replayer = replayer(10, 0);
+        DeadLetterController controller = new DeadLetterController(replayer, "/api/order-service/dead-letters");
+
+        ResponseEntity<ReplayProgress> response = controller.replay(QUEUE, 1000);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        String id = response.getBody().id();
+        assertThat(response.getHeaders().getLocation())
+                .hasToString("/api/order-service/dead-letters/replays/" + id);
+        awaitFinished(id);
+        assertThat(controller.replayProgress(id).replayed()).isEqualTo(5);
+
+        assertThatThrownBy(() -> controller.replay("other.queue", 10))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThatThrownBy(() -> controller.replayProgress("no-such-id"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    private DeadLetterReplayer replayer(int batchSize, long pauseMs) {
+        try {
+            Channel channel = mock(Channel.class);
+            when(channel.basicGet(eq(DeadLetters.dlqName(QUEUE)), eq(false))).thenAnswer(invocation -> {
+                synchronized (parked) {
+                    return parked.poll();
+                }
+            });
+            doAnswer(invocation -> published.add(invocation.getArgument(3)))
+                    .when(channel).basicPublish(eq(""), eq(QUEUE), anyBoolean(), any(AMQP.BasicProperties.class), any());
+            when(rabbitTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<ChannelCallback<?>>getArgument(0).doInRabbit(channel));
+            when(rabbitTemplate.getConnectionFactory()).thenReturn(mock(ConnectionFactory.class));
+            when(amqpAdmin.getQueueInfo(anyString())).thenReturn(null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return new DeadLetterReplayer(rabbitTemplate, amqpAdmin, List.of(QUEUE), batchSize, pauseMs);
+    }
+
+    private void park(int count) {
+        for (int i = 1; i <= count; i++) {
+            AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+                    .headers(Map.of(DeadLetters.RETRY_COUNT_HEADER, 3, DeadLetters.EXCEPTION_HEADER, "boom", "keep", "me"))
+                    .build();
+            parked.add(new GetResponse(new Envelope(i, false, DeadLetters.EXCHANGE, QUEUE), properties,
+                    ("message " + i).getBytes(), count - i));
+        }
+    }
+
+    private ReplayProgress awaitFinished(String id) {
+        await().atMost(TIMEOUT).until(() -> replayer.progress(id).finishedAt() != null);
+        return replayer.progress(id);
+    }
+}
@@ -3,8 +3,10 @@ package com.inventory.order_service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @ConfigurationPropertiesScan
+@EnableScheduling
 public class OrderServiceApplication {
 
 	public static void main(String[] args) {
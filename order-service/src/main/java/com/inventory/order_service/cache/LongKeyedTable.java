@@ -0,0 +1,131 @@
+package com.inventory.order_service.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing hash table keyed by a primitive long.
+ * Reads are lock-free; inserts are serialised and entries are never removed,
+ * which is all the inventory cache needs (products and warehouses only ever appear).
+ */
+final class LongKeyedTable<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table<V> table;
+
+    LongKeyedTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.table = new Table<>(capacity);
+    }
+
+    /**
+     * Lock-free lookup, returns null when the key is absent
+     */
+    V get(long key) {
+        return table.find(key);
+    }
+
+    /**
+     * Return the existing value for the key or insert the one built by the factory
+     */
+    V computeIfAbsent(long key, LongFunction<V> factory) {
+        V existing = table.find(key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            Table<V> current = table;
+            existing = current.find(key);
+            if (existing != null) {
+                return existing;
+            }
+            if ((current.size + 1) * 2 > current.keys.length) {
+                current = current.resize();
+            }
+            V created = factory.apply(key);
+            current.insert(key, created);
+            // Publish the (possibly resized) table after the insert is complete
+            table = current;
+            return created;
+        }
+    }
+
+    int size() {
+        return table.size;
+    }
+
+    /**
+     * Point-in-time copy of all values (for monitoring and snapshots, not the hot path)
+     */
+    List<V> values() {
+        Table<V> current = table;
+        List<V> result = new ArrayList<>(current.size);
+        for (int i = 0; i < current.keys.length; i++) {
+            V value = current.values.get(i);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static int indexFor(long key, int mask) {
+        // Fibonacci hashing spreads sequential ids across the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private static final class Table<V> {
+        private final long[] keys;
+        private final AtomicReferenceArray<V> values;
+        private final int mask;
+        private int size;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private V find(long key) {
+            int index = indexFor(key, mask);
+            while (true) {
+                // The volatile read of the value makes the plain key write visible
+                V value = values.get(index);
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void insert(long key, V value) {
+            int index = indexFor(key, mask);
+            while (values.get(index) != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values.set(index, value);
+            size++;
+        }
+
+        private Table<V> resize() {
+            Table<V> bigger = new Table<>(keys.length << 1);
+            for (int i = 0; i < keys.length; i++) {
+                V value = values.get(i);
+                if (value != null) {
+                    bigger.insert(keys[i], value);
+                }
+            }
+            return bigger;
+        }
+    }
+}
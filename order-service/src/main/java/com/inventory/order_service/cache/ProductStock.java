@@ -0,0 +1,249 @@
+package com.inventory.order_service.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock of one product across all warehouses.
+ * Each warehouse owns a fixed slot; stock and price share one packed long
+ * so a reader never sees the stock of one update paired with the price of another.
+ * Writers are serialised per product and keep a ranking of the reporting slots
+ * ordered by available stock (reported stock minus reservations), so routing reads
+ * the best warehouse without sorting.
+ */
+public final class ProductStock {
+
+    // Stock of Integer.MIN_VALUE marks a slot the warehouse never reported
+    static final long EMPTY = pack(Integer.MIN_VALUE, 0f);
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final long productId;
+    private final AtomicLongArray cells;
+    // Last applied version per slot, only touched under the writer lock
+    private final long[] versions;
+    // Units promised to routed orders that the warehouse has not reported as sold yet
+    private final AtomicIntegerArray reserved;
+    private volatile String productName;
+
+    // Reporting slots, highest stock first. Replaced (never mutated) when the order changes.
+    private volatile int[] ranking = NO_SLOTS;
+
+    ProductStock(long productId, int slotCount) {
+        this.productId = productId;
+        this.cells = new AtomicLongArray(slotCount);
+        this.versions = new long[slotCount];
+        this.reserved = new AtomicIntegerArray(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            cells.set(i, EMPTY);
+        }
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public int slotCount() {
+        return cells.length();
+    }
+
+    /**
+     * Whether the warehouse in this slot has reported the product
+     */
+    public boolean isPresent(int slot) {
+        return cells.get(slot) != EMPTY;
+    }
+
+    public int stockAt(int slot) {
+        return stockOf(cells.get(slot));
+    }
+
+    /**
+     * Reported stock minus outstanding reservations, never negative
+     */
+    public int availableAt(int slot) {
+        return Math.max(0, stockOf(cells.get(slot)) - reserved.get(slot));
+    }
+
+    public int reservedAt(int slot) {
+        return reserved.get(slot);
+    }
+
+    public float priceAt(int slot) {
+        return priceOf(cells.get(slot));
+    }
+
+    /**
+     * Raw packed value, use stockOf/priceOf to read both halves of one consistent update
+     */
+    public long cellAt(int slot) {
+        return cells.get(slot);
+    }
+
+    /**
+     * Version of the last applied report for the slot (0 if unversioned)
+     */
+    public synchronized long versionAt(int slot) {
+        return versions[slot];
+    }
+
+    /**
+     * Slots that reported the product, most available first. Callers must not modify the array.
+     */
+    public int[] ranking() {
+        return ranking;
+    }
+
+    /**
+     * Top-ranked slot if it has at least the required quantity available, or -1
+     */
+    public int bestSlot(int requiredQuantity) {
+        int[] ranked = ranking;
+        if (ranked.length == 0) {
+            return -1;
+        }
+        int top = ranked[0];
+        return availableAt(top) >= requiredQuantity ? top : -1;
+    }
+
+    /**
+     * Atomically take quantity out of the slot's available stock.
+     * Fails without side effects if not enough is available.
+     */
+    boolean tryReserve(int slot, int quantity) {
+        while (true) {
+            int current = reserved.get(slot);
+            if (stockOf(cells.get(slot)) - current < quantity) {
+                return false;
+            }
+            if (reserved.compareAndSet(slot, current, current + quantity)) {
+                rerank(slot);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a reservation (order failed, completed, or timed out)
+     */
+    void release(int slot, int quantity) {
+        while (true) {
+            int current = reserved.get(slot);
+            int next = Math.max(0, current - quantity);
+            if (reserved.compareAndSet(slot, current, next)) {
+                rerank(slot);
+                return;
+            }
+        }
+    }
+
+    private synchronized void rerank(int slot) {
+        if (cells.get(slot) != EMPTY) {
+            ranking = reposition(ranking, slot);
+        }
+    }
+
+    /**
+     * Apply a warehouse report unless an equal or newer version was already applied.
+     * Version 0 comes from senders that do not version their messages and always applies.
+     */
+    synchronized boolean update(int slot, String productName, int stock, float price, long version) {
+        if (version != 0) {
+            if (version <= versions[slot]) {
+                return false;
+            }
+            versions[slot] = version;
+        }
+        applyUpdate(slot, productName, stock, price);
+        return true;
+    }
+
+    private void applyUpdate(int slot, String productName, int stock, float price) {
+        this.productName = productName;
+        boolean wasPresent = cells.get(slot) != EMPTY;
+        cells.set(slot, pack(stock, price));
+        ranking = wasPresent ? reposition(ranking, slot) : insert(ranking, slot);
+    }
+
+    /**
+     * Forget the warehouse's report for this product. Reservations on the slot are kept: they belong
+     * to orders already routed there, which still complete or fail and release them, and they must
+     * still count against the stock if the warehouse reports the product again.
+     */
+    synchronized void clear(int slot) {
+        if (cells.get(slot) == EMPTY) {
+            return;
+        }
+        cells.set(slot, EMPTY);
+        int[] current = ranking;
+        int[] shrunk = new int[current.length - 1];
+        int j = 0;
+        for (int ranked : current) {
+            if (ranked != slot) {
+                shrunk[j++] = ranked;
+            }
+        }
+        ranking = shrunk;
+    }
+
+    /**
+     * Move a slot whose availability changed to its new rank; reuses the array when the order still holds
+     */
+    private int[] reposition(int[] current, int slot) {
+        int available = availableAt(slot);
+        int pos = 0;
+        while (current[pos] != slot) {
+            pos++;
+        }
+        boolean fitsAbove = pos == 0 || availableAt(current[pos - 1]) >= available;
+        boolean fitsBelow = pos == current.length - 1 || availableAt(current[pos + 1]) <= available;
+        if (fitsAbove && fitsBelow) {
+            return current;
+        }
+
+        int[] moved = current.clone();
+        while (pos > 0 && availableAt(moved[pos - 1]) < available) {
+            moved[pos] = moved[pos - 1];
+            pos--;
+        }
+        while (pos < moved.length - 1 && availableAt(moved[pos + 1]) > available) {
+            moved[pos] = moved[pos + 1];
+            pos++;
+        }
+        moved[pos] = slot;
+        return moved;
+    }
+
+    private int[] insert(int[] current, int slot) {
+        int available = availableAt(slot);
+        int[] grown = new int[current.length + 1];
+        int pos = 0;
+        while (pos < current.length && availableAt(current[pos]) >= available) {
+            grown[pos] = current[pos];
+            pos++;
+        }
+        grown[pos] = slot;
+        System.arraycopy(current, pos, grown, pos + 1, current.length - pos);
+        return grown;
+    }
+
+    static long pack(int stock, float price) {
+        return ((long) stock << 32) | (Float.floatToRawIntBits(price) & 0xFFFFFFFFL);
+    }
+
+    public static boolean isEmpty(long cell) {
+        return cell == EMPTY;
+    }
+
+    public static int stockOf(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    public static float priceOf(long cell) {
+        return Float.intBitsToFloat((int) cell);
+    }
+}
@@ -0,0 +1,33 @@
+package com.inventory.order_service.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded set of recently seen message ids, oldest evicted first.
+ * Catches broker redeliveries of messages that were already applied.
+ */
+public final class RecentIds {
+
+    private final Map<String, Boolean> ids;
+
+    public RecentIds(int capacity) {
+        this.ids = new LinkedHashMap<>(capacity * 4 / 3 + 1) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized boolean contains(String id) {
+        return ids.containsKey(id);
+    }
+
+    public synchronized void addAll(Collection<String> seen) {
+        for (String id : seen) {
+            ids.put(id, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.inventory.order_service.cache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Primitive-keyed stock index: productId -> ProductStock, warehouseId -> slot.
+ * Lookups never box and never lock; slot updates are single atomic writes.
+ */
+public final class StockIndex {
+
+    private final int slotCount;
+    private final LongKeyedTable<ProductStock> products;
+    private final LongKeyedTable<WarehouseSlot> warehouses;
+    private final AtomicReferenceArray<WarehouseSlot> slots;
+    private int nextSlot;
+
+    public StockIndex(int slotCount, int expectedProducts) {
+        this.slotCount = slotCount;
+        this.products = new LongKeyedTable<>(expectedProducts);
+        this.warehouses = new LongKeyedTable<>(slotCount);
+        this.slots = new AtomicReferenceArray<>(slotCount);
+    }
+
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Slot of a known warehouse, or null if it never registered
+     */
+    public WarehouseSlot slotOf(long warehouseId) {
+        return warehouses.get(warehouseId);
+    }
+
+    /**
+     * Slot of the warehouse, assigning the next free one on first sight.
+     * Returns null once every slot is taken.
+     */
+    public WarehouseSlot registerWarehouse(long warehouseId) {
+        WarehouseSlot existing = warehouses.get(warehouseId);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (slots) {
+            if (nextSlot == slotCount && warehouses.get(warehouseId) == null) {
+                return null;
+            }
+            return warehouses.computeIfAbsent(warehouseId, id -> {
+                WarehouseSlot slot = new WarehouseSlot(id, nextSlot);
+                slots.set(nextSlot++, slot);
+                return slot;
+            });
+        }
+    }
+
+    /**
+     * Warehouse registered at the slot index, or null if the slot is unused
+     */
+    public WarehouseSlot warehouseAt(int index) {
+        return slots.get(index);
+    }
+
+    public ProductStock get(long productId) {
+        return products.get(productId);
+    }
+
+    public ProductStock getOrCreate(long productId) {
+        return products.computeIfAbsent(productId, id -> new ProductStock(id, slotCount));
+    }
+
+    /**
+     * Record the stock and price a warehouse reported for a product.
+     * Returns false when the report is older than what the index already holds.
+     */
+    public boolean put(long productId, WarehouseSlot slot, String productName, int stock, float price, long version) {
+        return getOrCreate(productId).update(slot.getIndex(), productName, stock, price, version);
+    }
+
+    /**
+     * Forget a warehouse's entry for a product
+     */
+    public void clear(long productId, WarehouseSlot slot) {
+        ProductStock product = products.get(productId);
+        if (product != null) {
+            product.clear(slot.getIndex());
+        }
+    }
+
+    /**
+     * Atomically reserve quantity of a product at a warehouse slot
+     */
+    public boolean tryReserve(long productId, int slot, int quantity) {
+        ProductStock product = products.get(productId);
+        return product != null && product.tryReserve(slot, quantity);
+    }
+
+    public void release(long productId, int slot, int quantity) {
+        ProductStock product = products.get(productId);
+        if (product != null) {
+            product.release(slot, quantity);
+        }
+    }
+
+    /**
+     * Visit every reported (warehouse, product) entry, e.g. to write a snapshot
+     */
+    public void forEachEntry(EntryVisitor visitor) {
+        for (ProductStock product : products.values()) {
+            for (int i = 0; i < slotCount; i++) {
+                long cell = product.cellAt(i);
+                WarehouseSlot slot = slots.get(i);
+                if (slot != null && !ProductStock.isEmpty(cell)) {
+                    visitor.visit(slot.getWarehouseId(), product.getProductId(), product.getProductName(),
+                            ProductStock.stockOf(cell), ProductStock.priceOf(cell), product.versionAt(i));
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long warehouseId, long productId, String productName, int stock, float price, long version);
+    }
+
+    public int productCount() {
+        return products.size();
+    }
+
+    public List<ProductStock> allProducts() {
+        return products.values();
+    }
+}
@@ -0,0 +1,123 @@
+package com.inventory.order_service.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary snapshot of the stock index, so a restarted order-service routes from
+ * the last known stock instead of an empty cache.
+ *
+ * Layout (big-endian): magic, format version, entry count, then per entry
+ * warehouseId, productId, stock, price, version and a length-prefixed UTF-8 product name.
+ * Files are written to a temp file and moved into place, so a crash never leaves a torn snapshot.
+ */
+public final class StockSnapshotFile {
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    // Large enough for the longest (length-capped) entry
+    private static final int BUFFER_BYTES = 128 * 1024;
+
+    private StockSnapshotFile() {
+    }
+
+    /**
+     * Write every entry the source visits, returns the number of entries written
+     */
+    public static int write(Path path, Consumer<StockIndex.EntryVisitor> entries) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        int[] count = new int[1];
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(0);
+
+            IOException[] failure = new IOException[1];
+            entries.accept((warehouseId, productId, productName, stock, price, version) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                byte[] name = productName == null ? new byte[0] : productName.getBytes(StandardCharsets.UTF_8);
+                int length = Math.min(name.length, 0xFFFF);
+                try {
+                    if (buffer.remaining() < 34 + length) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putLong(warehouseId).putLong(productId).putInt(stock).putFloat(price).putLong(version)
+                            .putShort((short) length).put(name, 0, length);
+                    count[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            drain(channel, buffer);
+
+            // Patch the entry count into the header now that it is known
+            channel.write(ByteBuffer.allocate(4).putInt(0, count[0]), 8);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    /**
+     * Memory-map the snapshot and hand every entry to the visitor.
+     * Returns the number of entries read, or -1 if the file is missing or not a snapshot.
+     */
+    public static int read(Path path, StockIndex.EntryVisitor visitor) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return -1;
+            }
+            int count = buffer.getInt();
+            try {
+                for (int i = 0; i < count; i++) {
+                    long warehouseId = buffer.getLong();
+                    long productId = buffer.getLong();
+                    int stock = buffer.getInt();
+                    float price = buffer.getFloat();
+                    long version = buffer.getLong();
+                    byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                    buffer.get(name);
+                    visitor.visit(warehouseId, productId, new String(name, StandardCharsets.UTF_8), stock, price, version);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Snapshot " + path + " is truncated", e);
+            }
+            return count;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
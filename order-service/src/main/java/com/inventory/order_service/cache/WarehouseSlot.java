@@ -0,0 +1,23 @@
+package com.inventory.order_service.cache;
+
+/**
+ * Dense slot assigned to a warehouse id inside every ProductStock
+ */
+public final class WarehouseSlot {
+
+    private final long warehouseId;
+    private final int index;
+
+    WarehouseSlot(long warehouseId, int index) {
+        this.warehouseId = warehouseId;
+        this.index = index;
+    }
+
+    public long getWarehouseId() {
+        return warehouseId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
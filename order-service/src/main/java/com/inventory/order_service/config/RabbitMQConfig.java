@@ -1,13 +1,35 @@
 package com.inventory.order_service.config;
 
+import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Binding;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+import com.inventory.messaging.DeadLetterController;
+import com.inventory.messaging.DeadLetterPolicies;
+import com.inventory.messaging.DeadLetterReplayer;
+import com.inventory.messaging.DeadLetters;
+import com.inventory.messaging.ListenerContainers;
+import com.inventory.messaging.ListenerSettings;
+import com.inventory.messaging.WireFormat;
 
 @Configuration
 public class RabbitMQConfig {
@@ -17,6 +39,15 @@ public class RabbitMQConfig {
     public static final String EXCHANGE_NAME = "warehouse.exchange";
     public static final String ROUTING_KEY = "warehouse.stock.update";
 
+    //stock resync section constants
+    public static final String STOCK_RESYNC_ROUTING_KEY = "warehouse.stock.resync";
+    public static final String STOCK_PAGE_QUEUE = "stock.pages.queue";
+    public static final String STOCK_PAGE_ROUTING_KEY = "warehouse.stock.page";
+
+    //stock update batch section constants
+    public static final String STOCK_BATCH_QUEUE = "stock.batches.queue";
+    public static final String STOCK_BATCH_ROUTING_KEY = "warehouse.stock.batch";
+
     //order accepted section constants
     public static final String ORDER_ACCEPTED_QUEUE = "order.accepted.queue";
     public static final String ORDER_ACCEPTED_EXCHANGE = "order.accepted.exchange";
@@ -24,12 +55,7 @@ public class RabbitMQConfig {
 
     //order routed section constants
     public static final String ORDER_ROUTED_EXCHANGE = "order.routed.exchange";
-    public static final String ORDER_ROUTED_ROUTING_KEY_WAREHOUSE1 = "warehouse.1.routed";
-    public static final String ORDER_ROUTED_ROUTING_KEY_WAREHOUSE2 = "warehouse.2.routed";
-    public static final String ORDER_ROUTED_ROUTING_KEY_WAREHOUSE3 = "warehouse.3.routed";
-    public static final String WAREHOUSE_1_QUEUE = "order.routed.warehouse.1";
-    public static final String WAREHOUSE_2_QUEUE = "order.routed.warehouse.2";
-    public static final String WAREHOUSE_3_QUEUE = "order.routed.warehouse.3";
+    public static final String ORDER_ROUTED_QUEUE_PREFIX = "order.routed.warehouse.";
 
     //status update section constants
     public static final String STATUS_UPDATE_EXCHANGE = "status.update.exchange";
@@ -58,12 +84,82 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY);
     }
 
+    /* resync section: order-service asks all warehouses (warehouse.stock.resync) for their full
+    stock and they reply with pages on warehouse.stock.page */
+    @Bean
+    public Queue stockPagesQueue() {
+        return new Queue(STOCK_PAGE_QUEUE, true);
+    }
+    @Bean
+    public Binding stockPagesBinding(Queue stockPagesQueue, TopicExchange warehouseExchange) {
+        return BindingBuilder
+                .bind(stockPagesQueue)
+                .to(warehouseExchange)
+                .with(STOCK_PAGE_ROUTING_KEY);
+    }
+
+    /* batch section: many stock updates of one warehouse in one message (bulk imports) */
+    @Bean
+    public Queue stockBatchesQueue() {
+        return new Queue(STOCK_BATCH_QUEUE, true);
+    }
+    @Bean
+    public Binding stockBatchesBinding(Queue stockBatchesQueue, TopicExchange warehouseExchange) {
+        return BindingBuilder
+                .bind(stockBatchesQueue)
+                .to(warehouseExchange)
+                .with(STOCK_BATCH_ROUTING_KEY);
+    }
+
+    /* stock updates are consumed in micro-batches: the listener gets up to batch-size
+    messages, or whatever arrived within max-wait, and coalesces them before touching the cache.
+    Safe to run in parallel: the cache rejects out-of-order (stale) versions.
+    Stock queues have no dead-letter queue, a newer broadcast supersedes a message that keeps failing */
+    @Bean
+    @ConfigurationProperties("messaging.listeners.stock-updates")
+    public ListenerSettings stockUpdateListenerSettings() {
+        ListenerSettings settings = ListenerSettings.batch(200, 250);
+        settings.setConcurrency(4);
+        return settings;
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory stockUpdateContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, stockUpdateListenerSettings());
+    }
+
+    /* resync pages and stock batches: one large message at a time */
+    @Bean
+    @ConfigurationProperties("messaging.listeners.stock-batches")
+    public ListenerSettings stockBatchListenerSettings() {
+        return ListenerSettings.single();
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory stockBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, stockBatchListenerSettings());
+    }
+
 
     /* order accepted section where order-service will listen to order accepted from retailers
     and put the order accepted in the cache */
     @Bean
     public Queue orderAcceptedQueue() {
-        return new Queue(ORDER_ACCEPTED_QUEUE, true);
+        return DeadLetters.queue(ORDER_ACCEPTED_QUEUE);
+    }
+
+    @Bean
+    public Declarables orderAcceptedDeadLetterQueue() {
+        return DeadLetters.deadLetterQueue(ORDER_ACCEPTED_QUEUE);
+    }
+
+    @Bean
+    public Declarables orderAcceptedRetryQueues() {
+        return DeadLetters.retryQueues(ORDER_ACCEPTED_QUEUE, orderRoutingListenerSettings());
     }
 
     @Bean
@@ -79,6 +175,22 @@ public class RabbitMQConfig {
                 .with(ORDER_ACCEPTED_ROUTING_KEY);
     }
 
+    /* routing reserves stock and publishes, so it scales out under a backlog of accepted orders */
+    @Bean
+    @ConfigurationProperties("messaging.listeners.order-routing")
+    public ListenerSettings orderRoutingListenerSettings() {
+        ListenerSettings settings = ListenerSettings.single();
+        settings.setMaxConcurrency(4);
+        return settings;
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory orderRoutingContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, orderRoutingListenerSettings());
+    }
+
     /* order routed section where order-service will listen to order routed from retailers
     and put the order routed in the specific warehouse queue having the order */
 
@@ -86,42 +198,35 @@ public class RabbitMQConfig {
     public TopicExchange orderExchange() {
         return new TopicExchange(ORDER_ROUTED_EXCHANGE);
     }
+
+    /* one durable queue per warehouse, bound with warehouse.{id}.routed; warehouses that are
+    not in the configured list are declared at runtime by InventoryService when they first report stock */
     @Bean
-    public Queue warehouse1Queue() {
-        return new Queue(WAREHOUSE_1_QUEUE, true);
-    }
-    @Bean
-    public Queue warehouse2Queue() {
-        return new Queue(WAREHOUSE_2_QUEUE, true);
-    }
-    @Bean
-    public Queue warehouse3Queue() {
-        return new Queue(WAREHOUSE_3_QUEUE, true);
+    public Declarables warehouseRoutedQueues(WarehouseConfig warehouseConfig, TopicExchange orderExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (WarehouseConfig.WarehouseInfo warehouse : warehouseConfig.getList()) {
+            Queue queue = warehouseRoutedQueue(warehouse.getId());
+            declarables.add(queue);
+            declarables.add(warehouseRoutedBinding(queue, orderExchange, warehouse.getId()));
+            declarables.addAll(DeadLetters.deadLetterQueue(queue.getName()).getDeclarables());
+        }
+        return new Declarables(declarables);
     }
 
-
-    @Bean
-    public Binding binding1(Queue warehouse1Queue, TopicExchange orderExchange) {
-        return BindingBuilder
-                .bind(warehouse1Queue)
-                .to(orderExchange)
-                .with(ORDER_ROUTED_ROUTING_KEY_WAREHOUSE1);
+    public static String routingKeyForWarehouse(long warehouseId) {
+        return "warehouse." + warehouseId + ".routed";
     }
 
-    @Bean
-    public Binding binding2(Queue warehouse2Queue, TopicExchange orderExchange) {
-        return BindingBuilder
-                .bind(warehouse2Queue)
-                .to(orderExchange)
-                .with(ORDER_ROUTED_ROUTING_KEY_WAREHOUSE2);
+    // Same arguments as the warehouse's own declaration of this queue
+    public static Queue warehouseRoutedQueue(long warehouseId) {
+        return DeadLetters.queue(ORDER_ROUTED_QUEUE_PREFIX + warehouseId);
     }
 
-    @Bean
-    public Binding binding3(Queue warehouse3Queue, TopicExchange orderExchange) {
+    public static Binding warehouseRoutedBinding(Queue queue, TopicExchange orderExchange, long warehouseId) {
         return BindingBuilder
-                .bind(warehouse3Queue)
+                .bind(queue)
                 .to(orderExchange)
-                .with(ORDER_ROUTED_ROUTING_KEY_WAREHOUSE3);
+                .with(routingKeyForWarehouse(warehouseId));
     }
 
 
@@ -129,7 +234,16 @@ public class RabbitMQConfig {
     and put the status update in the cache */
     @Bean
     public Queue statusUpdateQueue() {
-        return new Queue(STATUS_UPDATE_QUEUE, true);
+        return DeadLetters.queue(STATUS_UPDATE_QUEUE);
+    }
+    @Bean
+    public Declarables statusUpdateDeadLetterQueue() {
+        return DeadLetters.deadLetterQueue(STATUS_UPDATE_QUEUE);
+    }
+
+    @Bean
+    public Declarables statusUpdateRetryQueues() {
+        return DeadLetters.retryQueues(STATUS_UPDATE_QUEUE, statusUpdateListenerSettings());
     }
     @Bean
     public TopicExchange statusUpdateExchange() {
@@ -143,15 +257,61 @@ public class RabbitMQConfig {
                 .with(STATUS_UPDATE_ROUTING_KEY);
     }
 
+    /* status updates are applied in small batches too: one query and one JDBC batch per burst.
+    A failing batch is retried as a whole (replays are no-ops), then dead-lettered as a whole */
+    @Bean
+    @ConfigurationProperties("messaging.listeners.status-updates")
+    public ListenerSettings statusUpdateListenerSettings() {
+        return ListenerSettings.batch(50, 100);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory statusUpdateContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, statusUpdateListenerSettings());
+    }
+
     @Bean
     public TopicExchange retailerStatusExchange() {
         return new TopicExchange(RETAILER_STATUS_EXCHANGE);
     }
 
+    /* rejected order-path messages (retries spent, unreadable body) are kept in {queue}.dlq */
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return DeadLetters.exchange();
+    }
+
+    /* rejected messages of the consumed queues reach the dead-letter exchange through per-queue
+    policies, so the queues keep their plain declaration */
+    @Bean
+    public DeadLetterPolicies deadLetterPolicies(RestClient.Builder restClientBuilder, RabbitProperties rabbitProperties,
+            @Value("${messaging.dead-letters.management-url}") String managementUrl) {
+        return new DeadLetterPolicies(restClientBuilder, managementUrl, rabbitProperties,
+                List.of(ORDER_ACCEPTED_QUEUE, STATUS_UPDATE_QUEUE));
+    }
+
+    /* replays the parking lots of the queues this service consumes; routed-order ones belong to the warehouses */
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+            @Value("${messaging.replay.batch-size:100}") int batchSize,
+            @Value("${messaging.replay.pause-ms:1000}") long pauseMs) {
+        return new DeadLetterReplayer(rabbitTemplate, amqpAdmin, List.of(ORDER_ACCEPTED_QUEUE, STATUS_UPDATE_QUEUE),
+                batchSize, pauseMs);
+    }
+
+    /* parked-message counts and background replays under messaging.dead-letters.path */
+    @Bean
+    public DeadLetterController deadLetterController(DeadLetterReplayer deadLetterReplayer,
+            @Value("${messaging.dead-letters.path}") String path) {
+        return new DeadLetterController(deadLetterReplayer, path);
+    }
+
 
-    /*Convert messages from JSON to Java objects*/
+    /*Outgoing messages use messaging.wire-format (JSON or BINARY); incoming ones are read by content type*/
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${messaging.wire-format:JSON}") WireFormat wireFormat) {
+        return wireFormat.messageConverter();
     }
 }
\ No newline at end of file
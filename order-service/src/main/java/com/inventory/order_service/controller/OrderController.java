@@ -11,9 +11,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.inventory.order_service.dto.BatchPurchaseRequest;
 import com.inventory.order_service.dto.PurchaseRequest;
 import com.inventory.order_service.entity.InventoryItem;
 import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.service.InventoryWarmupService;
 import com.inventory.order_service.service.OrderService;
 import com.inventory.order_service.service.OrderItemService;
 import com.inventory.order_service.service.OrderProducer;
@@ -29,11 +31,14 @@ public class OrderController {
     private final OrderService service;
     private final OrderItemService orderItemService;
     private final OrderProducer orderProducer;
+    private final InventoryWarmupService inventoryWarmupService;
 
-    public OrderController(OrderService service, OrderItemService orderItemService, OrderProducer orderProducer) {
+    public OrderController(OrderService service, OrderItemService orderItemService, OrderProducer orderProducer,
+                           InventoryWarmupService inventoryWarmupService) {
         this.service = service;
         this.orderItemService = orderItemService;
         this.orderProducer = orderProducer;
+        this.inventoryWarmupService = inventoryWarmupService;
     }
 
     /**
@@ -59,6 +64,20 @@ public class OrderController {
         return ResponseEntity.ok(orderItem);
     }
     
+    /**
+     * Accepts many purchase lines in one call (e.g. end-of-day restocking)
+     */
+    @PostMapping("/purchase/batch")
+    public ResponseEntity<List<OrderItem>> purchaseBatch(@Valid @RequestBody BatchPurchaseRequest request) {
+        log.info("📨 Received batch purchase request with {} lines", request.getLines().size());
+
+        List<OrderItem> orderItems = orderItemService.createOrders(request.getLines());
+
+        log.info("✅ {} orders accepted and sent for routing", orderItems.size());
+
+        return ResponseEntity.ok(orderItems);
+    }
+    
     /**
      * Health check endpoint
      */
@@ -75,6 +94,14 @@ public class OrderController {
         return ResponseEntity.ok(service.getInventorySnapshot());
     }
 
+    /**
+     * Ask all warehouses to stream their full stock again (e.g. after a RabbitMQ outage)
+     */
+    @PostMapping("/inventory/resync")
+    public ResponseEntity<String> resyncInventory() {
+        return ResponseEntity.accepted().body(inventoryWarmupService.requestResync());
+    }
+
     @PostMapping("/test-order")
     public ResponseEntity<OrderItem> createTestOrder() {
         log.info("\n📨 added to the database:");
@@ -0,0 +1,20 @@
+package com.inventory.order_service.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPurchaseRequest {
+
+    @NotEmpty(message = "At least one purchase line is required")
+    @Size(max = 10000, message = "A batch can hold at most 10000 lines")
+    private List<@Valid PurchaseRequest> lines;
+}
@@ -1,16 +0,0 @@
-package com.inventory.order_service.dto;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class ItemResponse {
-    private Long id;
-    private String productName;
-    private float price;
-    private int stockOnHand;
-    private Long warehouseId;
-}
@@ -7,17 +7,23 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@Table(indexes = @Index(name = "idx_order_item_parent_order_id", columnList = "parentOrderId"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class OrderItem {
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -33,7 +39,7 @@ public class OrderItem {
     private Long warehouseId;  // Which warehouse will fulfill this
     
     @Column(nullable = false)
-    private String status;  // ACCEPTED, ROUTED, PROCESSING, COMPLETED, FAILED
+    private String status;  // ACCEPTED, ROUTED, PROCESSING, COMPLETED, PARTIALLY_COMPLETED (split orders), FAILED
     
     @Column(nullable = false)
     private LocalDateTime createdAt;
@@ -44,4 +50,6 @@ public class OrderItem {
     private LocalDateTime completedAt;
     
     private String notes;  
+
+    private String parentOrderId;  // Set on the parts of an order split across warehouses
 }
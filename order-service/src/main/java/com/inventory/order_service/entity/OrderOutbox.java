@@ -0,0 +1,45 @@
+package com.inventory.order_service.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Order message waiting to be published, written in the same transaction as the order change it reports:
+ * an accepted order for the router, or a status update for the retailer.
+ * The relay deletes the row once the broker has confirmed the message.
+ */
+@Entity
+@Table(name = "order_outbox")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_seq")
+    @SequenceGenerator(name = "order_outbox_seq", sequenceName = "order_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String orderId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;  // JSON, exactly what the listener receives
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Destination and payload class of a retailer status forward; null for an accepted order
+    private String exchange;
+    private String routingKey;
+    private String payloadType;
+}
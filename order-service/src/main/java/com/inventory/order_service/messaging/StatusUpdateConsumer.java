@@ -1,14 +1,22 @@
 package com.inventory.order_service.messaging;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import com.inventory.messaging.dto.OrderUpdateDTO;
+import com.inventory.order_service.cache.RecentIds;
 import com.inventory.order_service.config.RabbitMQConfig;
-import com.inventory.order_service.dto.OrderUpdateDTO;
-import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.service.InventoryService;
 import com.inventory.order_service.service.OrderItemService;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.service.OrderItemService.StatusChange;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,32 +25,61 @@ import lombok.extern.slf4j.Slf4j;
 public class StatusUpdateConsumer {
 
     private final OrderItemService orderItemService;
-    private final RabbitTemplate rabbitTemplate;
+    private final InventoryService inventoryService;
+    private final RecentIds recentIds;
 
-    public StatusUpdateConsumer(OrderItemService orderItemService, RabbitTemplate rabbitTemplate) {
+    public StatusUpdateConsumer(OrderItemService orderItemService, InventoryService inventoryService,
+                                @Value("${status.updates.dedup-capacity:10000}") int dedupCapacity) {
         this.orderItemService = orderItemService;
-        this.rabbitTemplate = rabbitTemplate;
+        this.inventoryService = inventoryService;
+        this.recentIds = new RecentIds(dedupCapacity);
+    }
+
+    /**
+     * Apply status updates from warehouses in batches.
+     * Redelivered messages are dropped by message id, the rest go to the database in one transaction
+     * together with the retailer forwards (outbox); if that fails the whole batch is redelivered,
+     * which is safe because replays are no-ops. Ids are remembered only after that commit.
+     */
+    @RabbitListener(queues = RabbitMQConfig.STATUS_UPDATE_QUEUE, containerFactory = "statusUpdateContainerFactory")
+    public void consumeStatusUpdates(List<Message<OrderUpdateDTO>> messages) {
+        Set<String> batchIds = new LinkedHashSet<>();
+        List<OrderUpdateDTO> updates = new ArrayList<>(messages.size());
+        for (Message<OrderUpdateDTO> message : messages) {
+            OrderUpdateDTO update = message.getPayload();
+            String messageId = messageIdOf(message);
+            if (recentIds.contains(messageId) || !batchIds.add(messageId)) {
+                log.info("🔁 Skipping duplicate status update {} for order {}", messageId, update.orderId());
+                continue;
+            }
+            log.info("📢 Received status update for order {}: {} - {}", update.orderId(), update.status(), update.message());
+            updates.add(update);
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        List<StatusChange> changes = orderItemService.applyStatusUpdates(updates);
+        recentIds.addAll(batchIds);
+        log.info("✅ Database updated for {} status updates, {} retailer forwards queued", updates.size(), changes.size());
+
+        // Terminal states free the stock held for the order; a completed sale shows up in the next stock broadcast
+        for (OrderUpdateDTO update : updates) {
+            if ("COMPLETED".equals(update.status()) || "FAILED".equals(update.status())) {
+                inventoryService.releaseReservation(update.orderId());
+            }
+        }
     }
 
-    @RabbitListener(queues = RabbitMQConfig.STATUS_UPDATE_QUEUE)
-    public void consumeStatusUpdate(OrderUpdateDTO update) {
-        log.info("📢 Received status update for order {}: {} - {}", update.getOrderId(), update.getStatus(), update.getMessage());
-        
-        try {
-            OrderItem orderItem = orderItemService.updateOrderStatus(update.getOrderId(), update.getStatus());
-            orderItemService.addNotes(update.getOrderId(), update.getMessage());
-            log.info("✅ Database updated for order {}", update.getOrderId());
-
-            // Set the price in the update DTO so the retailer gets it
-            update.setPrice(orderItem.getPrice());
-
-            // Forward to retailer status exchange
-            String routingKey = "retailer." + orderItem.getRetailerId();
-            rabbitTemplate.convertAndSend(RabbitMQConfig.RETAILER_STATUS_EXCHANGE, routingKey, update);
-            log.info("📤 Status update forwarded to {} with routing key {}", RabbitMQConfig.RETAILER_STATUS_EXCHANGE, routingKey);
-
-        } catch (Exception e) {
-            log.error("❌ Failed to update status for order {}: {}", update.getOrderId(), e.getMessage());
+    /**
+     * Broker message id, or orderId:status for senders that do not set one
+     */
+    private static String messageIdOf(Message<OrderUpdateDTO> message) {
+        String messageId = message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+        if (messageId != null) {
+            return messageId;
         }
+        OrderUpdateDTO update = message.getPayload();
+        return update.orderId() + ":" + update.status();
     }
 }
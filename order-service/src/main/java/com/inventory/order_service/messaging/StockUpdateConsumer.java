@@ -1,9 +1,17 @@
 package com.inventory.order_service.messaging;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
-import com.inventory.order_service.dto.StockUpdateMessage;
+import com.inventory.messaging.dto.StockPageMessage;
+import com.inventory.messaging.dto.StockUpdateBatch;
+import com.inventory.messaging.dto.StockUpdateMessage;
+import com.inventory.order_service.config.RabbitMQConfig;
 import com.inventory.order_service.service.InventoryService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -19,26 +27,79 @@ public class StockUpdateConsumer {
     }
 
     /**
-     * Listen to stock update messages from RabbitMQ
-     * This method is called automatically when a message arrives
+     * Listen to stock update messages from RabbitMQ in micro-batches.
+     * Only the newest update per (warehouse, product) in a batch reaches the cache.
      */
-    @RabbitListener(queues = "stock.updates.queue")
-    public void handleStockUpdate(StockUpdateMessage message) {
-        
-        log.info("📥 Received stock update from Warehouse " + message.getWarehouseId() + 
-                          ": Product " + message.getProductId() + 
-                          " now has " + message.getNewStock() + " units");
-        
-        // Update local cache
-        inventoryService.updateProductStock(
-            message.getProductId(),
-            message.getProductName(),
-            message.getWarehouseId(),
-            message.getNewStock(),
-            message.getPrice()
-        );
-        
-        log.info("✅ Cache updated successfully");
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_NAME, containerFactory = "stockUpdateContainerFactory")
+    public void handleStockUpdates(List<StockUpdateMessage> messages) {
+
+        Collection<StockUpdateMessage> latest = coalesce(messages);
+
+        // Update local cache, the cache itself drops versions older than what it holds
+        int applied = apply(latest);
+
+        log.info("📥 Applied {} of {} stock updates to cache", applied, messages.size());
+    }
+
+    /**
+     * Apply one page of a warehouse's full stock, sent in reply to a resync request.
+     * Pages carry fresh versions, so they overwrite whatever the snapshot restored.
+     */
+    @RabbitListener(queues = RabbitMQConfig.STOCK_PAGE_QUEUE, containerFactory = "stockBatchContainerFactory")
+    public void handleStockPage(StockPageMessage page) {
+        int applied = apply(page.items());
+
+        if (page.last()) {
+            log.info("🔄 Warehouse {} finished resync {} after {} pages", page.warehouseId(), page.requestId(), page.page() + 1);
+        } else {
+            log.debug("🔄 Applied {} of {} items from warehouse {} page {}", applied, page.items().size(), page.warehouseId(), page.page());
+        }
+    }
+
+    /**
+     * Apply a batch of stock updates from one warehouse (bulk import, coalesced producer)
+     */
+    @RabbitListener(queues = RabbitMQConfig.STOCK_BATCH_QUEUE, containerFactory = "stockBatchContainerFactory")
+    public void handleStockBatch(StockUpdateBatch batch) {
+        int applied = apply(coalesce(batch.items()));
+        log.info("📥 Applied {} of {} batched stock updates from warehouse {}", applied, batch.items().size(), batch.warehouseId());
+    }
+
+    private int apply(Collection<StockUpdateMessage> messages) {
+        int applied = 0;
+        for (StockUpdateMessage message : messages) {
+            boolean fresh = inventoryService.updateProductStock(
+                message.productId(),
+                message.productName(),
+                message.warehouseId(),
+                message.newStock(),
+                message.price(),
+                message.version()
+            );
+            if (fresh) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Highest version wins per (warehouseId, productId); unversioned updates fall back
+     * to delivery order. Keeps first-seen order of the keys.
+     */
+    private Collection<StockUpdateMessage> coalesce(List<StockUpdateMessage> messages) {
+        if (messages.size() == 1) {
+            return messages;
+        }
+        Map<StockKey, StockUpdateMessage> latest = new LinkedHashMap<>(messages.size() * 2);
+        for (StockUpdateMessage message : messages) {
+            latest.merge(new StockKey(message.warehouseId(), message.productId()), message,
+                    (kept, incoming) -> incoming.version() >= kept.version() ? incoming : kept);
+        }
+        return latest.values();
+    }
+
+    private record StockKey(long warehouseId, long productId) {
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.inventory.order_service.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,9 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // Find order by order ID
     Optional<OrderItem> findByOrderId(String orderId);
     
+    // Find many orders in one query (status update bursts)
+    List<OrderItem> findByOrderIdIn(Collection<String> orderIds);
+    
     // Find all orders by status
     List<OrderItem> findByStatus(String status);
     
@@ -25,5 +29,8 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     // Find orders by retailer and status
     List<OrderItem> findByRetailerIdAndStatus(Long retailerId, String status);
+
+    // Find the parts of a split order
+    List<OrderItem> findByParentOrderId(String parentOrderId);
     
 }
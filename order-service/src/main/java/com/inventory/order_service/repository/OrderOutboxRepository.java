@@ -0,0 +1,18 @@
+package com.inventory.order_service.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.inventory.order_service.entity.OrderOutbox;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+    // Oldest pending messages; rows locked by another relay instance are skipped, not waited on
+    @Query(value = "SELECT * FROM {h-schema}order_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OrderOutbox> lockNextBatch(@Param("limit") int limit);
+}
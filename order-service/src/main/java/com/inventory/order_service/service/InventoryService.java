@@ -1,15 +1,30 @@
 package com.inventory.order_service.service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.inventory.messaging.DeadLetters;
+import com.inventory.order_service.cache.ProductStock;
+import com.inventory.order_service.cache.StockIndex;
+import com.inventory.order_service.cache.WarehouseSlot;
+import com.inventory.order_service.config.RabbitMQConfig;
 import com.inventory.order_service.config.WarehouseConfig;
 import com.inventory.order_service.config.WarehouseConfig.WarehouseInfo;
 import com.inventory.order_service.entity.InventoryItem;
+import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.repository.OrderItemRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,117 +32,389 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class InventoryService {
 
-    // In-memory cache: Key = productId, Value = List of warehouses that have it
-    private final Map<Long, List<InventoryItem>> inventoryCache = new ConcurrentHashMap<>();
+    // In-memory cache: productId -> per-warehouse stock slots (primitive keys, no per-product lists)
+    private final StockIndex stockIndex;
+
+    // Warehouse info and routed-queue routing key indexed by cache slot, so routing never scans a list
+    private final AtomicReferenceArray<WarehouseInfo> warehouseBySlot;
+    private final AtomicReferenceArray<String> routingKeyBySlot;
+
+    // Open reservations by orderId, released on COMPLETED/FAILED or once the sweep finds the order settled
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // Order states in which the warehouse may still ship, so the stock stays reserved
+    private static final Set<String> WAITING = Set.of("ACCEPTED", "ROUTED", "PROCESSING");
+    private static final int SWEEP_LOOKUP_BATCH = 1000;
 
     private final WarehouseConfig warehouseConfig;
+    private final AmqpAdmin amqpAdmin;
+    private final TopicExchange orderExchange;
+    private final OrderItemRepository orderItemRepository;
+    private final long reservationRecheckMs;
+    private final long reservationMaxAgeMs;
 
-    public InventoryService(WarehouseConfig warehouseConfig) {
+    public InventoryService(
+            WarehouseConfig warehouseConfig,
+            AmqpAdmin amqpAdmin,
+            TopicExchange orderExchange,
+            OrderItemRepository orderItemRepository,
+            @Value("${inventory.cache.warehouse-slots:64}") int warehouseSlots,
+            @Value("${inventory.cache.expected-products:4096}") int expectedProducts,
+            @Value("${inventory.reservation.recheck-ms:900000}") long reservationRecheckMs,
+            @Value("${inventory.reservation.max-age-ms:604800000}") long reservationMaxAgeMs) {
         this.warehouseConfig = warehouseConfig;
+        this.amqpAdmin = amqpAdmin;
+        this.orderExchange = orderExchange;
+        this.orderItemRepository = orderItemRepository;
+        this.reservationRecheckMs = reservationRecheckMs;
+        this.reservationMaxAgeMs = reservationMaxAgeMs;
+        this.stockIndex = new StockIndex(Math.max(warehouseSlots, warehouseConfig.getList().size()), expectedProducts);
+
+        this.warehouseBySlot = new AtomicReferenceArray<>(stockIndex.slotCount());
+        this.routingKeyBySlot = new AtomicReferenceArray<>(stockIndex.slotCount());
+
+        // Configured warehouses get the first slots in list order (their queues are declared by RabbitMQConfig)
+        for (WarehouseInfo warehouse : warehouseConfig.getList()) {
+            WarehouseSlot slot = stockIndex.registerWarehouse(warehouse.getId());
+            warehouseBySlot.set(slot.getIndex(), warehouse);
+            routingKeyBySlot.set(slot.getIndex(), RabbitMQConfig.routingKeyForWarehouse(warehouse.getId()));
+        }
     }
 
     /**
      * Update or add product stock in cache
+     * Returns false when the update was stale (an equal or newer version is already cached)
      */
-    public void updateProductStock(Long productId, String productName, Long warehouseId, int newStock, float price) {
-        
-        // Get or create list for this product
-        List<InventoryItem> warehouseList = inventoryCache.computeIfAbsent(productId, k -> new ArrayList<>());
+    public boolean updateProductStock(long productId, String productName, long warehouseId, int newStock, float price, long version) {
+        WarehouseSlot slot = stockIndex.registerWarehouse(warehouseId);
+        if (slot == null) {
+            log.warn("⚠️ No free cache slot for Warehouse {}, ignoring update for Product {}", warehouseId, productId);
+            return false;
+        }
+        if (warehouseBySlot.get(slot.getIndex()) == null) {
+            registerRuntimeWarehouse(slot);
+        }
 
-        // Find if this warehouse already has this product in cache
-        InventoryItem existing = warehouseList.stream()
-                .filter(item -> item.getWarehouseId().equals(warehouseId))
-                .findFirst()
-                .orElse(null);
+        if (!stockIndex.put(productId, slot, productName, newStock, price, version)) {
+            log.debug("⏭️ Skipped stale update v{}: Product {} in Warehouse {}", version, productId, warehouseId);
+            return false;
+        }
+        log.debug("📝 Updated cache: Product {} in Warehouse {} → {} units", productId, warehouseId, newStock);
+        return true;
+    }
 
-        if (existing != null) {
-            // Update existing entry
-            existing.setStockOnHand(newStock);
-            existing.setPrice(price);
-            existing.setProductName(productName);
-            log.info("📝 Updated cache: Product " + productId + " in Warehouse " + warehouseId + " → " + newStock + " units");
-        } else {
-            // Add new entry
-            InventoryItem newItem = new InventoryItem(productId, productName, warehouseId, newStock, price);
-            warehouseList.add(newItem);
-            log.info("➕ Added to cache: Product " + productId + " in Warehouse " + warehouseId + " → " + newStock + " units");
+    /**
+     * Warehouse with the most stock of the product, if it holds the required quantity.
+     * Reads the pre-ranked slots, so it is O(1) and allocation-free.
+     */
+    public WarehouseInfo findBestWarehouse(long productId, int requiredQuantity) {
+        ProductStock product = stockIndex.get(productId);
+
+        if (product == null) {
+            log.info("⚠️ Product {} not found in cache", productId);
+            return null;
         }
+
+        int slot = product.bestSlot(requiredQuantity);
+        if (slot < 0) {
+            return null;
+        }
+        return warehouseBySlot.get(slot);
     }
 
     /**
      * Find warehouses that have the product with sufficient stock
      * Returns them sorted by stock level (highest first)
      */
-    public List<WarehouseInfo> findWarehousesWithStock(Long productId, int requiredQuantity) {
-        List<InventoryItem> inventoryItems = inventoryCache.get(productId);
+    public List<WarehouseInfo> findWarehousesWithStock(long productId, int requiredQuantity) {
+        ProductStock product = stockIndex.get(productId);
 
-        if (inventoryItems == null || inventoryItems.isEmpty()) {
-            log.info("⚠️ Product " + productId + " not found in cache");
+        if (product == null) {
+            log.info("⚠️ Product {} not found in cache", productId);
             return new ArrayList<>();
         }
 
-        // Filter warehouses with enough stock and sort by stock level
+        // Ranking is already ordered by availability, stop at the first warehouse that falls short
         List<WarehouseInfo> result = new ArrayList<>();
-        
-        inventoryItems.stream()
-                .filter(item -> item.getStockOnHand() >= requiredQuantity)
-                .sorted((a, b) -> Integer.compare(b.getStockOnHand(), a.getStockOnHand()))  // Highest stock first
-                .forEach(item -> {
-                    // Find warehouse info
-                    warehouseConfig.getList().stream()
-                            .filter(w -> w.getId().equals(item.getWarehouseId()))
-                            .findFirst()
-                            .ifPresent(result::add);
-                });
+        for (int slot : product.ranking()) {
+            if (product.availableAt(slot) < requiredQuantity) {
+                break;
+            }
+            WarehouseInfo warehouse = warehouseBySlot.get(slot);
+            if (warehouse != null) {
+                result.add(warehouse);
+            }
+        }
 
         return result;
     }
 
     /**
-     * Get all warehouses
+     * Pick the warehouse with the most available stock and reserve the quantity there for the order.
+     * Concurrent routers never promise the same units twice; returns null if no warehouse can take it.
+     * An order routed again (redelivered after its routing failed) first gives back what it held.
+     */
+    public WarehouseInfo reserveBestWarehouse(String orderId, long productId, int quantity) {
+        releaseReservation(orderId);
+        ProductStock product = stockIndex.get(productId);
+        if (product == null) {
+            log.info("⚠️ Product {} not found in cache", productId);
+            return null;
+        }
+
+        // Walk the ranking from the top; usually the first slot succeeds. A lost CAS race just moves on.
+        for (int slot : product.ranking()) {
+            if (product.availableAt(slot) < quantity) {
+                break;
+            }
+            WarehouseInfo warehouse = warehouseBySlot.get(slot);
+            if (warehouse != null && stockIndex.tryReserve(productId, slot, quantity)) {
+                hold(orderId, newReservation(productId, slot, quantity));
+                return warehouse;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Split an order over as few warehouses as possible and reserve each part.
+     * Takes warehouses in availability order (largest first), which minimises the number of parts.
+     * Part i gets order id parentOrderId-i. Returns an empty list, holding nothing, if the
+     * warehouses together cannot cover the quantity within maxParts.
+     */
+    public List<Allocation> reserveSplit(String parentOrderId, long productId, int quantity, int maxParts) {
+        for (int part = 1; part <= maxParts; part++) {
+            releaseReservation(parentOrderId + "-" + part);
+        }
+        ProductStock product = stockIndex.get(productId);
+        if (product == null) {
+            return List.of();
+        }
+
+        List<Allocation> parts = new ArrayList<>(Math.min(maxParts, product.slotCount()));
+        int remaining = quantity;
+        for (int slot : product.ranking()) {
+            if (remaining == 0 || parts.size() == maxParts) {
+                break;
+            }
+            int take = Math.min(remaining, product.availableAt(slot));
+            if (take <= 0) {
+                break;
+            }
+            WarehouseInfo warehouse = warehouseBySlot.get(slot);
+            if (warehouse == null || !stockIndex.tryReserve(productId, slot, take)) {
+                continue;
+            }
+            String partOrderId = parentOrderId + "-" + (parts.size() + 1);
+            hold(partOrderId, newReservation(productId, slot, take));
+            parts.add(new Allocation(partOrderId, warehouse, take));
+            remaining -= take;
+        }
+
+        if (remaining > 0) {
+            for (Allocation part : parts) {
+                releaseReservation(part.orderId());
+            }
+            return List.of();
+        }
+        return parts;
+    }
+
+    /**
+     * Record the order's reservation; one that raced in for the same order is given back,
+     * so its units are never counted twice
+     */
+    private void hold(String orderId, Reservation reservation) {
+        Reservation previous = reservations.put(orderId, reservation);
+        if (previous != null) {
+            stockIndex.release(previous.productId(), previous.slot(), previous.quantity());
+            log.debug("🔓 Replaced the earlier reservation of {} units for order {}", previous.quantity(), orderId);
+        }
+    }
+
+    /**
+     * Give back the stock held for an order, no-op if it holds none
+     */
+    public void releaseReservation(String orderId) {
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation != null) {
+            stockIndex.release(reservation.productId(), reservation.slot(), reservation.quantity());
+            log.debug("🔓 Released {} units of Product {} held for order {}", reservation.quantity(), reservation.productId(), orderId);
+        }
+    }
+
+    /**
+     * Release reservations whose order no longer waits at its warehouse but whose COMPLETED/FAILED
+     * update never freed them (lost, or the order was settled another way). Orders still waiting
+     * keep their stock however long the warehouse takes to fulfil them, up to the max-age backstop.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:30000}")
+    public void expireReservations() {
+        long now = System.currentTimeMillis();
+        Map<String, Reservation> due = new HashMap<>();
+        for (Map.Entry<String, Reservation> entry : reservations.entrySet()) {
+            if (entry.getValue().recheckAt() <= now) {
+                due.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> statuses = new HashMap<>();
+        List<String> orderIds = new ArrayList<>(due.keySet());
+        for (int from = 0; from < orderIds.size(); from += SWEEP_LOOKUP_BATCH) {
+            List<String> chunk = orderIds.subList(from, Math.min(from + SWEEP_LOOKUP_BATCH, orderIds.size()));
+            for (OrderItem order : orderItemRepository.findByOrderIdIn(chunk)) {
+                statuses.put(order.getOrderId(), order.getStatus());
+            }
+        }
+
+        int expired = 0;
+        for (Map.Entry<String, Reservation> entry : due.entrySet()) {
+            Reservation reservation = entry.getValue();
+            boolean waiting = WAITING.contains(statuses.getOrDefault(entry.getKey(), ""));
+            if (waiting && reservation.reservedAt() + reservationMaxAgeMs > now) {
+                reservations.replace(entry.getKey(), reservation, reservation.recheckedAt(now + reservationRecheckMs));
+            } else if (reservations.remove(entry.getKey(), reservation)) {
+                stockIndex.release(reservation.productId(), reservation.slot(), reservation.quantity());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.info("⌛ Released {} stock reservations of settled or overdue orders", expired);
+        }
+    }
+
+    private Reservation newReservation(long productId, int slot, int quantity) {
+        long now = System.currentTimeMillis();
+        return new Reservation(productId, slot, quantity, now, now + reservationRecheckMs);
+    }
+
+    /**
+     * Routing key of the warehouse's routed-order queue, from the precomputed table
+     */
+    public String routingKeyFor(long warehouseId) {
+        WarehouseSlot slot = stockIndex.slotOf(warehouseId);
+        String routingKey = slot == null ? null : routingKeyBySlot.get(slot.getIndex());
+        if (routingKey == null) {
+            throw new IllegalArgumentException("Unknown warehouse ID: " + warehouseId);
+        }
+        return routingKey;
+    }
+
+    /**
+     * Get all warehouses (configured plus those registered at runtime)
      */
     public List<WarehouseInfo> getAllWarehouses() {
-        return warehouseConfig.getList();
+        List<WarehouseInfo> warehouses = new ArrayList<>();
+        for (int i = 0; i < warehouseBySlot.length(); i++) {
+            WarehouseInfo warehouse = warehouseBySlot.get(i);
+            if (warehouse != null) {
+                warehouses.add(warehouse);
+            }
+        }
+        return warehouses;
+    }
+
+    /**
+     * A warehouse outside the configured list reported stock (e.g. its startup broadcast):
+     * declare its routed queue and make it routable
+     */
+    private void registerRuntimeWarehouse(WarehouseSlot slot) {
+        long warehouseId = slot.getWarehouseId();
+
+        // Declarations are idempotent, so racing listener threads may both run them
+        Queue queue = RabbitMQConfig.warehouseRoutedQueue(warehouseId);
+        amqpAdmin.declareQueue(queue);
+        amqpAdmin.declareBinding(RabbitMQConfig.warehouseRoutedBinding(queue, orderExchange, warehouseId));
+        DeadLetters.declareDeadLetterQueue(amqpAdmin, queue.getName());
+        routingKeyBySlot.set(slot.getIndex(), RabbitMQConfig.routingKeyForWarehouse(warehouseId));
+
+        // Publishing the info last makes the warehouse routable only once its queue exists
+        WarehouseInfo warehouse = new WarehouseInfo();
+        warehouse.setId(warehouseId);
+        if (warehouseBySlot.compareAndSet(slot.getIndex(), null, warehouse)) {
+            log.info("🏭 Registered Warehouse {} at runtime, routing to {}", warehouseId, queue.getName());
+        }
     }
 
     /**
      * Remove warehouse from product's available list (when out of stock)
      */
-    public void markWarehouseOutOfStock(Long productId, Long warehouseId) {
-        List<InventoryItem> items = inventoryCache.get(productId);
-        
-        if (items != null) {
-            items.removeIf(item -> item.getWarehouseId().equals(warehouseId));
-            log.info("🚫 Marked Warehouse " + warehouseId + " as out of stock for Product " + productId);
+    public void markWarehouseOutOfStock(long productId, long warehouseId) {
+        WarehouseSlot slot = stockIndex.slotOf(warehouseId);
+
+        if (slot != null) {
+            stockIndex.clear(productId, slot);
+            log.info("🚫 Marked Warehouse {} as out of stock for Product {}", warehouseId, productId);
         }
     }
 
     /**
      * Get product name from cache by productId
      */
-    public String getProductName(Long productId) {
-        List<InventoryItem> items = inventoryCache.get(productId);
-        if (items != null && !items.isEmpty()) {
-            return items.get(0).getProductName();
+    public String getProductName(long productId) {
+        ProductStock product = stockIndex.get(productId);
+        if (product != null && product.getProductName() != null) {
+            return product.getProductName();
         }
         return "Unknown Product";
     }
 
     /**
-     * Get price from cache by productId
+     * Get price from cache by productId (first warehouse that reported it)
      */
-    public float getPrice(Long productId) {
-        List<InventoryItem> items = inventoryCache.get(productId);
-        if (items != null && !items.isEmpty()) {
-            return items.get(0).getPrice();
+    public float getPrice(long productId) {
+        ProductStock product = stockIndex.get(productId);
+        if (product != null) {
+            for (int i = 0; i < product.slotCount(); i++) {
+                if (product.isPresent(i)) {
+                    return product.priceAt(i);
+                }
+            }
         }
         return 0.0f;
     }
 
+    /**
+     * Visit every cached (warehouse, product) entry with its version, for persistence
+     */
+    public void forEachCachedEntry(StockIndex.EntryVisitor visitor) {
+        stockIndex.forEachEntry(visitor);
+    }
+
     /**
      * Get current inventory snapshot (for debugging/monitoring)
      */
     public Map<Long, List<InventoryItem>> getInventorySnapshot() {
-        return new ConcurrentHashMap<>(inventoryCache);
+        Map<Long, List<InventoryItem>> snapshot = new HashMap<>();
+        for (ProductStock product : stockIndex.allProducts()) {
+            List<InventoryItem> items = new ArrayList<>();
+            for (int i = 0; i < product.slotCount(); i++) {
+                long cell = product.cellAt(i);
+                WarehouseSlot slot = stockIndex.warehouseAt(i);
+                if (slot != null && !ProductStock.isEmpty(cell)) {
+                    items.add(new InventoryItem(product.getProductId(), product.getProductName(),
+                            slot.getWarehouseId(), ProductStock.stockOf(cell), ProductStock.priceOf(cell)));
+                }
+            }
+            if (!items.isEmpty()) {
+                snapshot.put(product.getProductId(), items);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * One part of a split order: which warehouse ships how much under which order id
+     */
+    public record Allocation(String orderId, WarehouseInfo warehouse, int quantity) {
+    }
+
+    private record Reservation(long productId, int slot, int quantity, long reservedAt, long recheckAt) {
+        Reservation recheckedAt(long next) {
+            return new Reservation(productId, slot, quantity, reservedAt, next);
+        }
     }
-}
\ No newline at end of file
+}
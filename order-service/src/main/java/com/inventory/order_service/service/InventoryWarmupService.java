@@ -0,0 +1,108 @@
+package com.inventory.order_service.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.inventory.messaging.dto.StockResyncRequest;
+import com.inventory.order_service.cache.StockSnapshotFile;
+import com.inventory.order_service.config.RabbitMQConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gets the inventory cache warm after a restart.
+ * The last on-disk snapshot is loaded before listeners start, then every warehouse is asked
+ * to stream its full stock so anything that changed while we were down is corrected.
+ * Snapshot entries keep their versions, so live updates that arrive meanwhile still win.
+ */
+@Service
+@Slf4j
+public class InventoryWarmupService {
+
+    private final InventoryService inventoryService;
+    private final RabbitTemplate rabbitTemplate;
+    private final Path snapshotPath;
+    private final boolean snapshotEnabled;
+    private final boolean resyncOnStartup;
+    private final int resyncPageSize;
+
+    public InventoryWarmupService(InventoryService inventoryService,
+                                  RabbitTemplate rabbitTemplate,
+                                  @Value("${inventory.snapshot.path:data/inventory-cache.snap}") String snapshotPath,
+                                  @Value("${inventory.snapshot.enabled:true}") boolean snapshotEnabled,
+                                  @Value("${inventory.resync.on-startup:true}") boolean resyncOnStartup,
+                                  @Value("${inventory.resync.page-size:500}") int resyncPageSize) {
+        this.inventoryService = inventoryService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.snapshotEnabled = snapshotEnabled;
+        this.resyncOnStartup = resyncOnStartup;
+        this.resyncPageSize = resyncPageSize;
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            int loaded = StockSnapshotFile.read(snapshotPath, (warehouseId, productId, productName, stock, price, version) ->
+                    inventoryService.updateProductStock(productId, productName, warehouseId, stock, price, version));
+            if (loaded < 0) {
+                log.info("No inventory snapshot at {}, starting with an empty cache", snapshotPath);
+            } else {
+                log.info("💾 Restored {} cached stock entries from {}", loaded, snapshotPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A bad snapshot only costs us the warm start, the resync still fills the cache
+            log.warn("Could not load inventory snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (resyncOnStartup) {
+            requestResync();
+        }
+    }
+
+    /**
+     * Ask all warehouses to stream their full stock in pages
+     */
+    public String requestResync() {
+        String requestId = UUID.randomUUID().toString();
+        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_NAME, RabbitMQConfig.STOCK_RESYNC_ROUTING_KEY,
+                new StockResyncRequest(requestId, resyncPageSize));
+        log.info("🔄 Requested stock resync {} from all warehouses", requestId);
+        return requestId;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.snapshot.interval-ms:60000}",
+               initialDelayString = "${inventory.snapshot.interval-ms:60000}")
+    public void saveSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            int written = StockSnapshotFile.write(snapshotPath, inventoryService::forEachCachedEntry);
+            log.debug("💾 Wrote {} cached stock entries to {}", written, snapshotPath);
+        } catch (IOException e) {
+            log.warn("Could not write inventory snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        saveSnapshot();
+    }
+}
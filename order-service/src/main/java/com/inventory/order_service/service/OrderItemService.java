@@ -1,30 +1,61 @@
 package com.inventory.order_service.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.inventory.messaging.dto.OrderUpdateDTO;
+import com.inventory.order_service.config.RabbitMQConfig;
+import com.inventory.order_service.dto.PurchaseRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.entity.OrderOutbox;
 import com.inventory.order_service.repository.OrderItemRepository;
+import com.inventory.order_service.repository.OrderOutboxRepository;
+
+import lombok.extern.slf4j.Slf4j;
 
 @Service
+@Slf4j
 public class OrderItemService {
+
+    // Allowed status transitions; anything else (replays, out-of-order or backwards updates) is ignored
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            "ACCEPTED", Set.of("ROUTED", "OUT_OF_STOCK", "FAILED"),
+            "ROUTED", Set.of("PROCESSING", "COMPLETED", "FAILED"),
+            "PROCESSING", Set.of("COMPLETED", "FAILED")
+    );
+
+    // Final statuses of a split order's parent
+    private static final Set<String> SETTLED = Set.of("COMPLETED", "PARTIALLY_COMPLETED", "FAILED");
     
     private final OrderItemRepository orderItemRepository;
-    private final OrderProducer orderProducer;
+    private final OrderOutboxRepository outboxRepository;
     private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
     
-    public OrderItemService(OrderItemRepository orderItemRepository, OrderProducer orderProducer, InventoryService inventoryService) {
+    public OrderItemService(OrderItemRepository orderItemRepository, OrderOutboxRepository outboxRepository,
+                            InventoryService inventoryService, ObjectMapper objectMapper) {
         this.orderItemRepository = orderItemRepository;
-        this.orderProducer = orderProducer;
+        this.outboxRepository = outboxRepository;
         this.inventoryService = inventoryService;
+        this.objectMapper = objectMapper;
     }
     
     /**
-     * Create a new order with ACCEPTED status
+     * Create a new order with ACCEPTED status.
+     * The routing message goes to the outbox in the same transaction; OrderOutboxRelay publishes it.
      */
+    @Transactional
     public OrderItem createOrder(
             Long retailerId,
             Long productId,
@@ -63,15 +94,56 @@ public class OrderItemService {
         // Set timestamps
         orderItem.setCreatedAt(LocalDateTime.now());
         
-        // Save to database first to ensure it exists before routing
+        // Order and its routing message commit (or roll back) together
         OrderItem savedOrder = orderItemRepository.save(orderItem);
-
-        // Send to RabbitMQ
-        orderProducer.sendOrderMessage(savedOrder);
+        outboxRepository.save(toOutbox(savedOrder));
         
         return savedOrder;
     }
     
+    /**
+     * Create many ACCEPTED orders at once.
+     * Orders and their outbox rows are inserted in one transaction with JDBC batching.
+     */
+    @Transactional
+    public List<OrderItem> createOrders(List<PurchaseRequest> requests) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderItem> orderItems = new ArrayList<>(requests.size());
+
+        for (PurchaseRequest request : requests) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrderId(generateOrderId());
+            orderItem.setReferenceId(generateReferenceId());
+            orderItem.setRetailerId(request.getRetailerId());
+            orderItem.setProductId(request.getProductId());
+            orderItem.setProductName(inventoryService.getProductName(request.getProductId()));
+            orderItem.setPrice(inventoryService.getPrice(request.getProductId()));
+            orderItem.setQuantity(request.getQuantity());
+            orderItem.setStatus("ACCEPTED");
+            orderItem.setCreatedAt(now);
+            orderItems.add(orderItem);
+        }
+
+        List<OrderItem> savedOrders = orderItemRepository.saveAll(orderItems);
+
+        List<OrderOutbox> outbox = new ArrayList<>(savedOrders.size());
+        for (OrderItem savedOrder : savedOrders) {
+            outbox.add(toOutbox(savedOrder));
+        }
+        outboxRepository.saveAll(outbox);
+
+        return savedOrders;
+    }
+
+    private OrderOutbox toOutbox(OrderItem orderItem) {
+        try {
+            return new OrderOutbox(null, orderItem.getOrderId(), objectMapper.writeValueAsString(orderItem), LocalDateTime.now(),
+                    null, null, null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise order " + orderItem.getOrderId(), e);
+        }
+    }
+    
     /**
      * Update order status
      */
@@ -90,6 +162,135 @@ public class OrderItemService {
         return orderItemRepository.save(orderItem);
     }
     
+    /**
+     * Apply a burst of warehouse status updates in one transaction.
+     * Orders are loaded with a single query, status and notes are set together, and the
+     * dirty rows are flushed as one JDBC batch. Updates the state machine does not allow
+     * are skipped, which makes a redelivered update a no-op.
+     * What the retailers should be told (the order itself, or the parent once a split order settles) goes
+     * to the outbox in the same transaction, so a forward cannot be lost once the status is stored.
+     */
+    @Transactional
+    public List<StatusChange> applyStatusUpdates(List<OrderUpdateDTO> updates) {
+        Set<String> orderIds = new HashSet<>();
+        for (OrderUpdateDTO update : updates) {
+            orderIds.add(update.orderId());
+        }
+        Map<String, OrderItem> orders = new HashMap<>();
+        for (OrderItem orderItem : orderItemRepository.findByOrderIdIn(orderIds)) {
+            orders.put(orderItem.getOrderId(), orderItem);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StatusChange> applied = new ArrayList<>(updates.size());
+        for (OrderUpdateDTO update : updates) {
+            OrderItem orderItem = orders.get(update.orderId());
+            if (orderItem == null) {
+                log.warn("⚠️ Status update for unknown order {}", update.orderId());
+                continue;
+            }
+            if (!canTransition(orderItem.getStatus(), update.status())) {
+                log.warn("⚠️ Ignoring {} -> {} for order {}", orderItem.getStatus(), update.status(), update.orderId());
+                continue;
+            }
+            orderItem.setStatus(update.status());
+            orderItem.setNotes(update.message());
+            orderItem.setUpdatedAt(now);
+            if ("COMPLETED".equals(update.status())) {
+                orderItem.setCompletedAt(now);
+            }
+            applied.add(new StatusChange(orderItem, update));
+        }
+
+        // Parts of a split order are invisible to the retailer, only the settled parent is reported
+        List<StatusChange> notifications = new ArrayList<>(applied.size());
+        for (StatusChange change : applied) {
+            String parentOrderId = change.order().getParentOrderId();
+            if (parentOrderId == null) {
+                notifications.add(change);
+                continue;
+            }
+            StatusChange settled = rollUpSplitStatus(parentOrderId);
+            if (settled == null) {
+                log.info("⏳ Part {} recorded, waiting for the rest of order {}", change.order().getOrderId(), parentOrderId);
+                continue;
+            }
+            notifications.add(settled);
+        }
+
+        List<OrderOutbox> forwards = new ArrayList<>(notifications.size());
+        for (StatusChange change : notifications) {
+            forwards.add(toRetailerOutbox(change));
+        }
+        outboxRepository.saveAll(forwards);
+        return notifications;
+    }
+
+    private OrderOutbox toRetailerOutbox(StatusChange change) {
+        OrderItem orderItem = change.order();
+        // Carry the order's price so the retailer gets it
+        OrderUpdateDTO update = change.update().withPrice(orderItem.getPrice());
+        try {
+            return new OrderOutbox(null, orderItem.getOrderId(), objectMapper.writeValueAsString(update), LocalDateTime.now(),
+                    RabbitMQConfig.RETAILER_STATUS_EXCHANGE, "retailer." + orderItem.getRetailerId(), OrderUpdateDTO.class.getName());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise status update for " + orderItem.getOrderId(), e);
+        }
+    }
+
+    public static boolean canTransition(String from, String to) {
+        return TRANSITIONS.getOrDefault(from, Set.of()).contains(to);
+    }
+
+    /**
+     * Roll the status of a split order's parts up into the parent.
+     * Once every part is terminal the parent is COMPLETED if all parts completed, FAILED if none did,
+     * and PARTIALLY_COMPLETED otherwise, with the delivered units in the update so the retailer is
+     * credited for what did ship. Null while parts are still in flight or the parent was already settled.
+     */
+    public StatusChange rollUpSplitStatus(String parentOrderId) {
+        OrderItem parent = getOrder(parentOrderId);
+        if (SETTLED.contains(parent.getStatus())) {
+            return null;
+        }
+
+        List<OrderItem> parts = orderItemRepository.findByParentOrderId(parentOrderId);
+        int completed = 0;
+        int failed = 0;
+        int delivered = 0;
+        for (OrderItem part : parts) {
+            if ("COMPLETED".equals(part.getStatus())) {
+                completed++;
+                delivered += part.getQuantity();
+            } else if ("FAILED".equals(part.getStatus())) {
+                failed++;
+            }
+        }
+        if (completed + failed < parts.size()) {
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (failed == 0) {
+            parent.setStatus("COMPLETED");
+            parent.setCompletedAt(now);
+            parent.setNotes("All " + parts.size() + " parts fulfilled");
+        } else if (completed == 0) {
+            parent.setStatus("FAILED");
+            parent.setNotes("All " + parts.size() + " parts failed");
+        } else {
+            parent.setStatus("PARTIALLY_COMPLETED");
+            parent.setCompletedAt(now);
+            parent.setNotes(failed + " of " + parts.size() + " parts failed, " + delivered + " of "
+                    + parent.getQuantity() + " units delivered");
+        }
+        parent.setUpdatedAt(now);
+        OrderItem saved = orderItemRepository.save(parent);
+        int quantity = "PARTIALLY_COMPLETED".equals(saved.getStatus()) ? delivered : 0;
+        return new StatusChange(saved,
+                new OrderUpdateDTO(saved.getOrderId(), saved.getStatus(), saved.getNotes(), saved.getPrice(), quantity));
+    }
+
     /**
      * Get order by order ID
      */
@@ -148,4 +349,10 @@ public class OrderItemService {
         String uniquePart = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         return "REF-" + uniquePart;
     }
-}
\ No newline at end of file
+
+    /**
+     * An order whose status changed, with the update to send to its retailer
+     */
+    public record StatusChange(OrderItem order, OrderUpdateDTO update) {
+    }
+}
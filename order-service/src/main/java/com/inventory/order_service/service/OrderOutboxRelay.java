@@ -0,0 +1,89 @@
+package com.inventory.order_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.inventory.order_service.config.RabbitMQConfig;
+import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.entity.OrderOutbox;
+import com.inventory.order_service.repository.OrderOutboxRepository;
+import com.inventory.order_service.service.OrderProducer.OutboundMessage;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the order outbox: accepted orders to order.accepted.exchange, status updates to the retailers.
+ * Each batch is locked, published on one channel, confirmed by the broker and only then deleted,
+ * all in one transaction: a failed publish leaves the rows for the next run (at-least-once).
+ */
+@Service
+@Slf4j
+public class OrderOutboxRelay {
+
+    private final OrderOutboxRepository outboxRepository;
+    private final OrderProducer orderProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public OrderOutboxRelay(OrderOutboxRepository outboxRepository,
+                            OrderProducer orderProducer,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${order.outbox.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.orderProducer = orderProducer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Outbox relay paused, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OrderOutbox> batch = outboxRepository.lockNextBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboundMessage> messages = new ArrayList<>(batch.size());
+        for (OrderOutbox entry : batch) {
+            messages.add(entry.getExchange() == null
+                    ? new OutboundMessage(RabbitMQConfig.ORDER_ACCEPTED_EXCHANGE, RabbitMQConfig.ORDER_ACCEPTED_ROUTING_KEY, toMessage(entry))
+                    : new OutboundMessage(entry.getExchange(), entry.getRoutingKey(), toMessage(entry)));
+        }
+        orderProducer.sendConfirmed(messages);
+
+        outboxRepository.deleteAllInBatch(batch);
+        log.info("📤 Relayed {} messages from the outbox", batch.size());
+        return batch.size();
+    }
+
+    private static Message toMessage(OrderOutbox entry) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setMessageId("outbox-" + entry.getId());
+        // Same type header the JSON converter would add, so listeners see the payload's type
+        String payloadType = entry.getPayloadType() == null ? OrderItem.class.getName() : entry.getPayloadType();
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, payloadType);
+        return new Message(entry.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
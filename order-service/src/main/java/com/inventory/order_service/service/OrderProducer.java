@@ -1,6 +1,10 @@
 package com.inventory.order_service.service;
 
+import java.util.List;
+
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.inventory.order_service.config.RabbitMQConfig;
@@ -8,6 +12,9 @@ import com.inventory.order_service.config.RabbitMQConfig;
 @Service
 public class OrderProducer {
     private final RabbitTemplate rabbitTemplate;
+
+    @Value("${order.batch.confirm-timeout-ms:10000}")
+    private long confirmTimeoutMs;
     
     public OrderProducer(RabbitTemplate rabbitTemplate) {
         this.rabbitTemplate = rabbitTemplate;
@@ -20,4 +27,21 @@ public class OrderProducer {
     public void sendOrderMessage(Object orderMessage) {
         rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_ACCEPTED_EXCHANGE, RabbitMQConfig.ORDER_ACCEPTED_ROUTING_KEY, orderMessage);    
     }
+
+    /**
+     * Publish pre-serialised messages on one channel and wait once for the broker to confirm them all
+     * @param messages The messages to publish, in order
+     */
+    public void sendConfirmed(List<OutboundMessage> messages) {
+        rabbitTemplate.invoke(operations -> {
+            for (OutboundMessage outbound : messages) {
+                operations.send(outbound.exchange(), outbound.routingKey(), outbound.message());
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+    }
+
+    public record OutboundMessage(String exchange, String routingKey, Message message) {
+    }
 }
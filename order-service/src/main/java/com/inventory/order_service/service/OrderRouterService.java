@@ -1,17 +1,25 @@
 package com.inventory.order_service.service;
 
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.inventory.messaging.dto.OrderMessage;
 import com.inventory.order_service.config.RabbitMQConfig;
 import com.inventory.order_service.config.WarehouseConfig.WarehouseInfo;
 import com.inventory.order_service.entity.OrderItem;
 import com.inventory.order_service.repository.OrderItemRepository;
+import com.inventory.order_service.service.InventoryService.Allocation;
 
 import lombok.extern.slf4j.Slf4j;
-import java.util.List;
 
 @Service
 @Slf4j
@@ -21,33 +29,62 @@ public class OrderRouterService {
     private final RabbitTemplate rabbitTemplate;
     private final OrderItemRepository orderItemRepository;
 
+    @Value("${order.routing.split-enabled:true}")
+    private boolean splitEnabled;
+
+    @Value("${order.routing.max-split-parts:5}")
+    private int maxSplitParts;
+
     public OrderRouterService(InventoryService inventoryService, RabbitTemplate rabbitTemplate, OrderItemRepository orderItemRepository) {
         this.inventoryService = inventoryService;
         this.rabbitTemplate = rabbitTemplate;
         this.orderItemRepository = orderItemRepository;
     }
 
-    @RabbitListener(queues = RabbitMQConfig.ORDER_ACCEPTED_QUEUE)
+    @RabbitListener(queues = RabbitMQConfig.ORDER_ACCEPTED_QUEUE, containerFactory = "orderRoutingContainerFactory")
     @Transactional
     public void routeOrder(OrderItem order) {
         log.info("🎯 Routing order: {} for product: {}", order.getOrderId(), order.getProductName());
 
-        // Find candidate warehouses
-        List<WarehouseInfo> candidates = inventoryService.findWarehousesWithStock(
+        // The outbox relay delivers at least once; a redelivered order has already left ACCEPTED
+        String currentStatus = orderItemRepository.findByOrderId(order.getOrderId())
+                .map(OrderItem::getStatus)
+                .orElse("ACCEPTED");
+        if (!"ACCEPTED".equals(currentStatus)) {
+            log.info("🔁 Order {} already {}, skipping", order.getOrderId(), currentStatus);
+            return;
+        }
+
+        // Best warehouse comes straight from the pre-ranked cache, with the quantity reserved there
+        WarehouseInfo selected = inventoryService.reserveBestWarehouse(
+                order.getOrderId(),
                 order.getProductId(),
                 order.getQuantity()
         );
 
-        if (candidates.isEmpty()) {
+        if (selected == null && splitEnabled) {
+            // No single warehouse can ship it all, try spreading it over several
+            List<Allocation> parts = inventoryService.reserveSplit(
+                    order.getOrderId(),
+                    order.getProductId(),
+                    order.getQuantity(),
+                    maxSplitParts
+            );
+            if (!parts.isEmpty()) {
+                routeSplit(order, parts);
+                return;
+            }
+        }
+
+        if (selected == null) {
             log.warn("❌ No warehouse found for order: {}", order.getOrderId());
             order.setStatus("OUT_OF_STOCK");
             orderItemRepository.save(order);
             return;
         }
 
-        // Select the first warehouse (highest stock as per InventoryService logic)
-        WarehouseInfo selected = candidates.get(0);
         log.info("✅ Selected Warehouse: {}", selected.getId());
+        releaseOnRollback(List.of(order.getOrderId()));
 
         // Update order status/warehouse in DB
         order.setStatus("ROUTED");
@@ -56,14 +93,71 @@ public class OrderRouterService {
 
         // Send to specific warehouse queue
         String routingKey = getRoutingKeyForWarehouse(selected.getId());
-        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_ROUTED_EXCHANGE, routingKey, order);
-        log.info("📨 Order {} dispatched to warehouse: {} via routing key: {}", order.getOrderId(), selected.getId(), routingKey);
+        rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_ROUTED_EXCHANGE, routingKey, toMessage(order));
+        log.info("📨 Order {} dispatched to warehouse: {}", order.getOrderId(), selected.getId());
+    }
+
+    /**
+     * Persist one child order per allocation and send each to its warehouse.
+     * The parent stays as the retailer-facing order; child status updates roll up into it.
+     */
+    private void routeSplit(OrderItem order, List<Allocation> parts) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderItem> children = new ArrayList<>(parts.size());
+        for (Allocation part : parts) {
+            OrderItem child = new OrderItem();
+            child.setOrderId(part.orderId());
+            child.setParentOrderId(order.getOrderId());
+            child.setReferenceId(order.getReferenceId());
+            child.setRetailerId(order.getRetailerId());
+            child.setProductId(order.getProductId());
+            child.setProductName(order.getProductName());
+            child.setPrice(order.getPrice());
+            child.setQuantity(part.quantity());
+            child.setWarehouseId(part.warehouse().getId());
+            child.setStatus("ROUTED");
+            child.setCreatedAt(now);
+            children.add(child);
+        }
+
+        releaseOnRollback(parts.stream().map(Allocation::orderId).toList());
+
+        order.setStatus("ROUTED");
+        order.setNotes("Split across " + parts.size() + " warehouses");
+        orderItemRepository.save(order);
+        orderItemRepository.saveAll(children);
+
+        for (OrderItem child : children) {
+            String routingKey = getRoutingKeyForWarehouse(child.getWarehouseId());
+            rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_ROUTED_EXCHANGE, routingKey, toMessage(child));
+        }
+        log.info("🔀 Order {} split into {} parts", order.getOrderId(), parts.size());
+    }
+
+    /**
+     * The order goes back to ACCEPTED if the routing transaction does not commit (a failed save,
+     * publish or commit), so give back the stock reserved for it; the redelivery reserves again
+     */
+    private void releaseOnRollback(List<String> orderIds) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    orderIds.forEach(inventoryService::releaseReservation);
+                }
+            }
+        });
     }
 
     private String getRoutingKeyForWarehouse(Long warehouseId) {
-        if (warehouseId == 1) return RabbitMQConfig.ORDER_ROUTED_ROUTING_KEY_WAREHOUSE1;
-        if (warehouseId == 2) return RabbitMQConfig.ORDER_ROUTED_ROUTING_KEY_WAREHOUSE2;
-        if (warehouseId == 3) return RabbitMQConfig.ORDER_ROUTED_ROUTING_KEY_WAREHOUSE3;
-        throw new IllegalArgumentException("Unknown warehouse ID: " + warehouseId);
+        return inventoryService.routingKeyFor(warehouseId);
+    }
+
+    /**
+     * What the warehouse needs to ship the order, not the whole entity
+     */
+    private static OrderMessage toMessage(OrderItem order) {
+        return new OrderMessage(order.getOrderId(), order.getProductId(), order.getProductName(),
+                order.getQuantity(), order.getRetailerId());
     }
 }
@@ -0,0 +1,6 @@
+-- Ids moved from IDENTITY to pooled sequences (allocationSize 50), which ddl-auto=update creates at 1.
+-- Runs after the schema update on every start: a sequence behind the existing ids is moved past them,
+-- one that is already ahead is left alone.
+
+SELECT setval('order_service_schema.order_item_seq', (SELECT MAX(id) FROM order_service_schema.order_item) + 50)
+WHERE (SELECT last_value FROM order_service_schema.order_item_seq) < (SELECT COALESCE(MAX(id), 0) FROM order_service_schema.order_item);
@@ -0,0 +1,145 @@
+package com.inventory.order_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class LongKeyedTableTest {
+
+    @Test
+    void returnsNullForAbsentKeys() {
+        LongKeyedTable<String> table = new LongKeyedTable<>(4);
+
+        assertThat(table.get(0)).isNull();
+        assertThat(table.get(42)).isNull();
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void computeIfAbsentBuildsEachValueOnce() {
+        LongKeyedTable<String> table = new LongKeyedTable<>(4);
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = table.computeIfAbsent(7, key -> "value-" + key + "-" + calls.incrementAndGet());
+        String second = table.computeIfAbsent(7, key -> "value-" + key + "-" + calls.incrementAndGet());
+
+        assertThat(first).isEqualTo("value-7-1").isSameAs(second);
+        assertThat(table.get(7)).isSameAs(first);
+        assertThat(calls).hasValue(1);
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsEveryKeyAcrossResizes() {
+        LongKeyedTable<Long> table = new LongKeyedTable<>(1);
+        List<Long> keys = new ArrayList<>(List.of(0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE));
+        for (long id = 1; id <= 10_000; id++) {
+            keys.add(id);          // Sequential ids, like database keys
+            keys.add(id << 32);    // Same low bits, different high bits
+        }
+
+        for (long key : keys) {
+            table.computeIfAbsent(key, Long::valueOf);
+        }
+
+        assertThat(table.size()).isEqualTo(keys.size());
+        for (long key : keys) {
+            assertThat(table.get(key)).isEqualTo(key);
+        }
+        assertThat(table.get(10_001)).isNull();
+        assertThat(new HashSet<>(table.values())).containsExactlyInAnyOrderElementsOf(keys);
+    }
+
+    @Test
+    void concurrentInsertsAndReadsSeeOneValuePerKey() throws Exception {
+        LongKeyedTable<Object> table = new LongKeyedTable<>(1);
+        int threads = 8;
+        int keys = 20_000;
+        ConcurrentHashMap<Long, AtomicInteger> created = new ConcurrentHashMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger inconsistentReads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 2);
+        try {
+            List<Future<Object[]>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    Object[] seen = new Object[keys];
+                    // Every writer inserts every key, starting at a different point to collide in the middle
+                    for (int i = 0; i < keys; i++) {
+                        long key = (i + offset * (keys / threads)) % keys;
+                        seen[(int) key] = table.computeIfAbsent(key, k -> {
+                            created.computeIfAbsent(k, x -> new AtomicInteger()).incrementAndGet();
+                            return new Object();
+                        });
+                    }
+                    return seen;
+                }));
+            }
+            // Lock-free readers must never see a value change once it is visible, even across resizes
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    Object[] firstSeen = new Object[keys];
+                    while (writing.get()) {
+                        for (int key = 0; key < keys; key++) {
+                            Object value = table.get(key);
+                            if (value == null) {
+                                if (firstSeen[key] != null) {
+                                    inconsistentReads.incrementAndGet();
+                                }
+                            } else if (firstSeen[key] == null) {
+                                firstSeen[key] = value;
+                            } else if (firstSeen[key] != value) {
+                                inconsistentReads.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            List<Object[]> results = new ArrayList<>();
+            for (Future<Object[]> writer : writers) {
+                results.add(writer.get(30, TimeUnit.SECONDS));
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+
+            assertThat(table.size()).isEqualTo(keys);
+            assertThat(created).hasSize(keys);
+            assertThat(created.values()).allMatch(count -> count.get() == 1);
+            assertThat(inconsistentReads).hasValue(0);
+            Set<Object> distinct = new HashSet<>();
+            for (int key = 0; key < keys; key++) {
+                Object value = table.get(key);
+                for (Object[] seen : results) {
+                    assertThat(seen[key]).isSameAs(value);
+                }
+                distinct.add(value);
+            }
+            assertThat(distinct).hasSize(keys);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
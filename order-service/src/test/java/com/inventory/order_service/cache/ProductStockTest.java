@@ -0,0 +1,173 @@
+package com.inventory.order_service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class ProductStockTest {
+
+    @Test
+    void slotsStartEmpty() {
+        ProductStock stock = new ProductStock(1, 3);
+
+        assertThat(stock.isPresent(0)).isFalse();
+        assertThat(stock.ranking()).isEmpty();
+        assertThat(stock.bestSlot(1)).isEqualTo(-1);
+        assertThat(stock.tryReserve(0, 1)).isFalse();
+    }
+
+    @Test
+    void packsStockAndPriceIntoOneCell() {
+        long cell = ProductStock.pack(-5, 12.75f);
+
+        assertThat(ProductStock.stockOf(cell)).isEqualTo(-5);
+        assertThat(ProductStock.priceOf(cell)).isEqualTo(12.75f);
+        assertThat(ProductStock.isEmpty(cell)).isFalse();
+        assertThat(ProductStock.isEmpty(ProductStock.EMPTY)).isTrue();
+    }
+
+    @Test
+    void reservesOnlyWhatIsAvailable() {
+        ProductStock stock = new ProductStock(1, 1);
+        stock.update(0, "Laptop", 10, 999f, 1);
+
+        assertThat(stock.tryReserve(0, 7)).isTrue();
+        assertThat(stock.tryReserve(0, 4)).isFalse();
+        assertThat(stock.reservedAt(0)).isEqualTo(7);
+        assertThat(stock.availableAt(0)).isEqualTo(3);
+        assertThat(stock.tryReserve(0, 3)).isTrue();
+        assertThat(stock.availableAt(0)).isZero();
+
+        stock.release(0, 4);
+        assertThat(stock.availableAt(0)).isEqualTo(4);
+        stock.release(0, 100);
+        assertThat(stock.reservedAt(0)).isZero();
+    }
+
+    @Test
+    void ranksSlotsByAvailableStock() {
+        ProductStock stock = new ProductStock(1, 3);
+        stock.update(0, "Laptop", 5, 1f, 1);
+        stock.update(1, "Laptop", 20, 1f, 1);
+        stock.update(2, "Laptop", 10, 1f, 1);
+        assertThat(stock.ranking()).containsExactly(1, 2, 0);
+        assertThat(stock.bestSlot(20)).isEqualTo(1);
+        assertThat(stock.bestSlot(21)).isEqualTo(-1);
+
+        // Reservations move a slot down as if its stock had dropped
+        assertThat(stock.tryReserve(1, 16)).isTrue();
+        assertThat(stock.ranking()).containsExactly(2, 0, 1);
+        stock.release(1, 16);
+        assertThat(stock.ranking()).containsExactly(1, 2, 0);
+
+        stock.clear(2);
+        assertThat(stock.ranking()).containsExactly(1, 0);
+        assertThat(stock.isPresent(2)).isFalse();
+    }
+
+    @Test
+    void ignoresReportsOlderThanTheLastApplied() {
+        ProductStock stock = new ProductStock(1, 1);
+
+        assertThat(stock.update(0, "Laptop", 10, 1f, 5)).isTrue();
+        assertThat(stock.update(0, "Laptop", 3, 1f, 4)).isFalse();
+        assertThat(stock.update(0, "Laptop", 3, 1f, 5)).isFalse();
+        assertThat(stock.stockAt(0)).isEqualTo(10);
+        // Unversioned senders always apply
+        assertThat(stock.update(0, "Laptop", 3, 1f, 0)).isTrue();
+        assertThat(stock.stockAt(0)).isEqualTo(3);
+        assertThat(stock.versionAt(0)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        ProductStock stock = new ProductStock(1, 1);
+        int units = 10_000;
+        stock.update(0, "Laptop", units, 1f, 1);
+
+        List<Integer> granted = runConcurrently(16, () -> {
+            int taken = 0;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                int quantity = random.nextInt(1, 4);
+                if (stock.tryReserve(0, quantity)) {
+                    taken += quantity;
+                }
+            }
+            return taken;
+        });
+
+        int total = granted.stream().mapToInt(Integer::intValue).sum();
+        assertThat(total).isEqualTo(stock.reservedAt(0)).isLessThanOrEqualTo(units);
+        // 16 x 5000 attempts ask for far more than exists, so everything but a remainder below 3 is taken
+        assertThat(units - total).isLessThan(3);
+        assertThat(stock.tryReserve(0, 3)).isFalse();
+    }
+
+    @Test
+    void concurrentReserveReleaseAndReportsKeepTheRankingSorted() throws Exception {
+        int slots = 4;
+        ProductStock stock = new ProductStock(1, slots);
+        for (int slot = 0; slot < slots; slot++) {
+            stock.update(slot, "Laptop", 1_000, 1f, 0);
+        }
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 20_000; i++) {
+                int slot = random.nextInt(slots);
+                int quantity = random.nextInt(1, 10);
+                if (stock.tryReserve(slot, quantity)) {
+                    // Everything reserved is given back, so the reservations end at zero
+                    stock.release(slot, quantity);
+                }
+                if (i % 100 == 0) {
+                    stock.update(slot, "Laptop", random.nextInt(500, 1_500), 1f, 0);
+                }
+                assertThat(stock.availableAt(slot)).isGreaterThanOrEqualTo(0);
+            }
+            return 0;
+        });
+
+        int[] ranking = stock.ranking();
+        assertThat(ranking).hasSize(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            assertThat(stock.reservedAt(slot)).isZero();
+        }
+        for (int i = 1; i < ranking.length; i++) {
+            assertThat(stock.availableAt(ranking[i - 1])).isGreaterThanOrEqualTo(stock.availableAt(ranking[i]));
+        }
+    }
+
+    private static List<Integer> runConcurrently(int threads, Callable<Integer> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
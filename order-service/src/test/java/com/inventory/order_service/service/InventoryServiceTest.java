@@ -0,0 +1,92 @@
+package com.inventory.order_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.TopicExchange;
+
+import com.inventory.order_service.config.WarehouseConfig;
+import com.inventory.order_service.config.WarehouseConfig.WarehouseInfo;
+import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.repository.OrderItemRepository;
+import com.inventory.order_service.service.InventoryService.Allocation;
+
+class InventoryServiceTest {
+
+    private static final long PRODUCT = 42;
+
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final InventoryService inventoryService = inventoryService(orderItemRepository, 1L, 2L);
+
+    @Test
+    void reservingAgainForTheSameOrderReplacesTheEarlierReservation() {
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 1, 10, 1f, 1);
+
+        assertThat(inventoryService.reserveBestWarehouse("order-1", PRODUCT, 6)).isNotNull();
+        assertThat(inventoryService.reserveBestWarehouse("order-1", PRODUCT, 6)).isNotNull();
+
+        // Only the second reservation holds stock
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 4)).hasSize(1);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 5)).isEmpty();
+
+        inventoryService.releaseReservation("order-1");
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 10)).hasSize(1);
+    }
+
+    @Test
+    void splittingAgainForTheSameOrderReplacesTheEarlierParts() {
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 1, 6, 1f, 1);
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 2, 4, 1f, 1);
+
+        List<Allocation> first = inventoryService.reserveSplit("order-2", PRODUCT, 8, 5);
+        List<Allocation> second = inventoryService.reserveSplit("order-2", PRODUCT, 8, 5);
+
+        assertThat(first).hasSize(2);
+        assertThat(second).extracting(Allocation::orderId).containsExactly("order-2-1", "order-2-2");
+        assertThat(second).extracting(Allocation::quantity).containsExactly(6, 2);
+
+        second.forEach(part -> inventoryService.releaseReservation(part.orderId()));
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 4)).hasSize(2);
+    }
+
+    @Test
+    void theSweepKeepsReservationsOfOrdersStillWaitingAtTheirWarehouse() {
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 1, 9, 1f, 1);
+        inventoryService.reserveBestWarehouse("waiting", PRODUCT, 3);
+        inventoryService.reserveBestWarehouse("completed", PRODUCT, 3);
+        inventoryService.reserveBestWarehouse("unknown", PRODUCT, 3);
+        when(orderItemRepository.findByOrderIdIn(anyCollection()))
+                .thenReturn(List.of(order("waiting", "PROCESSING"), order("completed", "COMPLETED")));
+
+        inventoryService.expireReservations();
+
+        // Only the PROCESSING order still holds its 3 units
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 6)).hasSize(1);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 7)).isEmpty();
+    }
+
+    private static OrderItem order(String orderId, String status) {
+        OrderItem order = new OrderItem();
+        order.setOrderId(orderId);
+        order.setStatus(status);
+        return order;
+    }
+
+    static InventoryService inventoryService(OrderItemRepository orderItemRepository, Long... warehouseIds) {
+        WarehouseConfig config = new WarehouseConfig();
+        config.setList(Arrays.stream(warehouseIds).map(id -> {
+            WarehouseInfo warehouse = new WarehouseInfo();
+            warehouse.setId(id);
+            return warehouse;
+        }).toList());
+        return new InventoryService(config, mock(AmqpAdmin.class), new TopicExchange("order.exchange"),
+                orderItemRepository, 8, 16, 0, 604_800_000);
+    }
+}
@@ -0,0 +1,94 @@
+package com.inventory.order_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.inventory.order_service.entity.OrderItem;
+import com.inventory.order_service.repository.OrderItemRepository;
+
+class OrderRouterServiceTest {
+
+    private static final long PRODUCT = 42;
+
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final InventoryService inventoryService = InventoryServiceTest.inventoryService(orderItemRepository, 1L, 2L);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final OrderRouterService router = new OrderRouterService(inventoryService, rabbitTemplate, orderItemRepository);
+
+    @BeforeEach
+    void beginTransaction() {
+        ReflectionTestUtils.setField(router, "splitEnabled", true);
+        ReflectionTestUtils.setField(router, "maxSplitParts", 5);
+        when(orderItemRepository.findByOrderId(anyString())).thenReturn(Optional.empty());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void aRolledBackRoutingGivesTheReservationBack() {
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 1, 10, 1f, 1);
+
+        router.routeOrder(order("order-1", 6));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 10)).hasSize(1);
+
+        // The redelivered order reserves once, and keeps it when the routing commits
+        TransactionSynchronizationManager.initSynchronization();
+        router.routeOrder(order("order-1", 6));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 4)).hasSize(1);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 5)).isEmpty();
+    }
+
+    @Test
+    void aFailedPublishGivesEverySplitPartBack() {
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 1, 6, 1f, 1);
+        inventoryService.updateProductStock(PRODUCT, "Laptop", 2, 4, 1f, 1);
+        doThrow(new AmqpException("broker down")).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        assertThatThrownBy(() -> router.routeOrder(order("order-2", 8))).isInstanceOf(AmqpException.class);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 6)).hasSize(1);
+        assertThat(inventoryService.findWarehousesWithStock(PRODUCT, 4)).hasSize(2);
+    }
+
+    private static void complete(int status) {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static OrderItem order(String orderId, int quantity) {
+        OrderItem order = new OrderItem();
+        order.setOrderId(orderId);
+        order.setProductId(PRODUCT);
+        order.setProductName("Laptop");
+        order.setQuantity(quantity);
+        order.setRetailerId(7L);
+        order.setStatus("ACCEPTED");
+        return order;
+    }
+}
@@ -1,38 +1,112 @@
 package com.inventory.retailer.client;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
+import org.springframework.web.server.ResponseStatusException;
 
-import com.inventory.retailer.dto.ItemResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventory.messaging.JsonCodec;
+import com.inventory.messaging.dto.ItemResponse;
 import com.inventory.retailer.dto.WarehousePurchaseRequest;
 
 @Component
 public class WarehouseClient {
 
-    private final RestClient restClient;
-
-    @Value("${warehouse.central.host:order-service}")
-    private String warehouseCentralHost;
+    // Reader for the accepted-order response, built once instead of per call
+    private static final JsonCodec<ItemResponse> ITEM_RESPONSE = JsonCodec.of(ItemResponse.class);
 
-    @Value("${warehouse.central.port:8084}")
-    private int warehouseCentralPort;
+    // One shared client keeps its connections to order-service alive and reuses them
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI purchaseUri;
+    private final Duration requestTimeout;
+    // Caps concurrent calls so a slow order-service cannot pile up unbounded work here
+    private final Semaphore inFlight;
 
-    public WarehouseClient() {
-        this.restClient = RestClient.builder().build();
+    public WarehouseClient(ObjectMapper objectMapper,
+                           @Value("${warehouse.central.host:order-service}") String warehouseCentralHost,
+                           @Value("${warehouse.central.port:8084}") int warehouseCentralPort,
+                           @Value("${warehouse.central.connect-timeout-ms:2000}") long connectTimeoutMs,
+                           @Value("${warehouse.central.request-timeout-ms:5000}") long requestTimeoutMs,
+                           @Value("${warehouse.central.max-in-flight:200}") int maxInFlight,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.objectMapper = objectMapper;
+        this.purchaseUri = URI.create("http://" + warehouseCentralHost + ":" + warehouseCentralPort + "/api/order-service/purchase");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.inFlight = new Semaphore(maxInFlight);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs));
+        if (virtualThreads) {
+            // Response handling (and the tracking insert that follows) runs on virtual threads too
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        this.httpClient = builder.build();
     }
 
-    // Buy from order-service (it handles routing to actual warehouses)
-    public ItemResponse buyFromWarehouse(Long retailerId, Long itemId, int quantity) {
+    // Buy from order-service (it handles routing to actual warehouses) without blocking the caller
+    public CompletableFuture<ItemResponse> buyFromWarehouseAsync(Long retailerId, Long itemId, int quantity) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many purchases in flight, try again"));
+        }
+
         WarehousePurchaseRequest request = new WarehousePurchaseRequest();
         request.setRetailerId(retailerId);
         request.setProductId(itemId);
         request.setQuantity(quantity);
 
-        return restClient.post()
-                .uri("http://" + warehouseCentralHost + ":" + warehouseCentralPort + "/api/order-service/purchase")
-                .body(request)
-                .retrieve()
-                .body(ItemResponse.class);
+        CompletableFuture<ItemResponse> response;
+        try {
+            HttpRequest httpRequest = HttpRequest.newBuilder(purchaseUri)
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                    .build();
+            response = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(this::toItemResponse);
+        } catch (IOException | RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response
+                .exceptionally(WarehouseClient::translate)
+                .whenComplete((result, error) -> inFlight.release());
+    }
+
+    private ItemResponse toItemResponse(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "order-service answered " + response.statusCode());
+        }
+        try {
+            return ITEM_RESPONSE.read(response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ItemResponse translate(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ResponseStatusException statusException) {
+            throw statusException;
+        }
+        if (cause instanceof HttpTimeoutException) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "order-service did not answer in time", cause);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "order-service call failed: " + cause.getMessage(), cause);
     }
-}
\ No newline at end of file
+}
@@ -1,25 +1,86 @@
 package com.inventory.retailer.config;
 
+import java.util.List;
+
+import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+import com.inventory.messaging.DeadLetterController;
+import com.inventory.messaging.DeadLetterPolicies;
+import com.inventory.messaging.DeadLetterReplayer;
+import com.inventory.messaging.DeadLetters;
+import com.inventory.messaging.ListenerContainers;
+import com.inventory.messaging.ListenerSettings;
+import com.inventory.messaging.WireFormat;
 
 @Configuration
 public class RabbitMQConfig {
 
     public static final String EXCHANGE_NAME = "retailer.status.exchange";
+    public static final String STATUS_QUEUE_PREFIX = "retailer.status.";
 
     @Value("${retailer.id}")
     private String retailerId;
 
     @Bean
     public Queue statusQueue() {
-        return new Queue("retailer.status." + retailerId, true);
+        return DeadLetters.queue(STATUS_QUEUE_PREFIX + retailerId);
+    }
+
+    // status updates that still fail after the retries are kept in retailer.status.{id}.dlq
+    @Bean
+    public Declarables statusDeadLetterQueue() {
+        return DeadLetters.deadLetterQueue(STATUS_QUEUE_PREFIX + retailerId);
+    }
+
+    // before that, rounds through delay queues (retailer.status.{id}.retry.{n}) sized by the listener settings
+    @Bean
+    public Declarables statusRetryQueues() {
+        return DeadLetters.retryQueues(STATUS_QUEUE_PREFIX + retailerId, statusUpdateListenerSettings());
+    }
+
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return DeadLetters.exchange();
+    }
+
+    // rejected messages reach the dead-letter exchange through a policy on the queue, set on start
+    @Bean
+    public DeadLetterPolicies deadLetterPolicies(RestClient.Builder restClientBuilder, RabbitProperties rabbitProperties,
+            @Value("${messaging.dead-letters.management-url}") String managementUrl) {
+        return new DeadLetterPolicies(restClientBuilder, managementUrl, rabbitProperties,
+                List.of(STATUS_QUEUE_PREFIX + retailerId));
+    }
+
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+            @Value("${messaging.replay.batch-size:100}") int batchSize,
+            @Value("${messaging.replay.pause-ms:1000}") long pauseMs) {
+        return new DeadLetterReplayer(rabbitTemplate, amqpAdmin, List.of(STATUS_QUEUE_PREFIX + retailerId),
+                batchSize, pauseMs);
+    }
+
+    // parked-message counts and background replays under messaging.dead-letters.path
+    @Bean
+    public DeadLetterController deadLetterController(DeadLetterReplayer deadLetterReplayer,
+            @Value("${messaging.dead-letters.path}") String path) {
+        return new DeadLetterController(deadLetterReplayer, path);
     }
 
     @Bean
@@ -32,8 +93,26 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(statusQueue).to(statusExchange).with("retailer." + retailerId + ".#");
     }
 
+    // a completion can arrive before the purchase's tracking row is committed, so retries back off for a while
+    @Bean
+    @ConfigurationProperties("messaging.listeners.status-updates")
+    public ListenerSettings statusUpdateListenerSettings() {
+        ListenerSettings settings = ListenerSettings.single();
+        settings.setMaxAttempts(5);
+        settings.setMaxIntervalMs(30_000);
+        return settings;
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory statusUpdateContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, statusUpdateListenerSettings());
+    }
+
+    // outgoing messages use messaging.wire-format (JSON or BINARY), incoming ones are read by content type
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${messaging.wire-format:JSON}") WireFormat wireFormat) {
+        return wireFormat.messageConverter();
     }
 }
@@ -1,7 +1,12 @@
 package com.inventory.retailer.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -10,30 +15,46 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.inventory.history.HistoryPage;
+import com.inventory.history.StockAsOf;
 import com.inventory.retailer.dto.PurchaseRequest;
 import com.inventory.retailer.entity.Purchase;
 import com.inventory.retailer.entity.RetailerInventory;
 import com.inventory.retailer.entity.RetailerInventoryHistory;
+import com.inventory.retailer.entity.RetailerMovementRollup;
 import com.inventory.retailer.entity.Sale;
+import com.inventory.retailer.service.HistoryQueryService;
+import com.inventory.retailer.service.MovementRollupService;
 import com.inventory.retailer.service.RetailerService;
+import com.inventory.retailer.service.StockSnapshotService;
 
 @RestController
 @RequestMapping("/api/retailer")
 public class PurchaseController {
     private final RetailerService service;
+    private final HistoryQueryService historyQueryService;
+    private final MovementRollupService rollupService;
+    private final StockSnapshotService snapshotService;
 
-    public PurchaseController(RetailerService service) {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    public PurchaseController(RetailerService service, HistoryQueryService historyQueryService,
+                              MovementRollupService rollupService, StockSnapshotService snapshotService) {
         this.service = service;
+        this.historyQueryService = historyQueryService;
+        this.rollupService = rollupService;
+        this.snapshotService = snapshotService;
     }
 
     // ==================== PURCHASE ENDPOINTS ====================
 
     /**
-     * Buy from warehouse
+     * Buy from warehouse (request thread is released while order-service answers)
      */
     @PostMapping("/buy")
-    public com.inventory.retailer.entity.OrderTracking buy(@RequestBody com.inventory.retailer.dto.PurchaseRequest request) {
+    public CompletableFuture<com.inventory.retailer.entity.OrderTracking> buy(@RequestBody com.inventory.retailer.dto.PurchaseRequest request) {
         return service.buyFromWarehouse(request.getItemId(), request.getQuantity());
     }
 
@@ -126,6 +147,79 @@ public class PurchaseController {
         return service.getProductHistory(productId);
     }
 
+    /**
+     * Inventory history one page at a time, newest first (pass nextCursor to continue)
+     */
+    @GetMapping("/inventory/history/page")
+    public HistoryPage<RetailerInventoryHistory> getInventoryHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return historyQueryService.getHistoryPage(cursor, limit);
+    }
+
+    @GetMapping("/inventory/history/product/{productId}/page")
+    public HistoryPage<RetailerInventoryHistory> getProductHistoryPage(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return historyQueryService.getProductHistoryPage(productId, cursor, limit);
+    }
+
+    /**
+     * Full inventory history streamed as NDJSON (one JSON object per line)
+     */
+    @GetMapping(value = "/inventory/history/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportInventoryHistory() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(historyQueryService::exportHistory);
+    }
+
+    @GetMapping(value = "/inventory/history/product/{productId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProductHistory(@PathVariable Long productId) {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(out -> historyQueryService.exportProductHistory(productId, out));
+    }
+
+    /**
+     * Hourly or daily movement totals from the rollup table (from/to as ISO date-times)
+     */
+    @GetMapping("/inventory/history/rollups")
+    public List<RetailerMovementRollup> getMovementRollups(
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String transactionType) {
+        return rollupService.getRollups(granularity, from, to, productId, transactionType);
+    }
+
+    /**
+     * Recompute the rollups from the raw history (repair after manual history edits)
+     */
+    @PostMapping("/inventory/history/rollups/rebuild")
+    public ResponseEntity<String> rebuildMovementRollups() {
+        int buckets = rollupService.rebuild();
+        return ResponseEntity.ok("✅ Rebuilt " + buckets + " rollup buckets");
+    }
+
+    /**
+     * Stock of every product as it was at the given time (ISO date-time)
+     */
+    @GetMapping("/inventory/as-of")
+    public List<StockAsOf> getStockAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return snapshotService.getStockAsOf(at);
+    }
+
+    @GetMapping("/inventory/as-of/product/{productId}")
+    public StockAsOf getProductStockAsOf(
+            @PathVariable Long productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return snapshotService.getProductStockAsOf(productId, at);
+    }
+
     // ==================== LEGACY ENDPOINTS (Backward Compatibility) ====================
 
     /**
@@ -19,7 +19,7 @@ public class OrderTracking {
     private String productName;
     private int quantity;
     
-    private String status; // ACCEPTED, ROUTED, COMPLETED, FAILED
+    private String status; // ACCEPTED, ROUTED, COMPLETED, PARTIALLY_COMPLETED, FAILED
     private float price;
     
     private LocalDateTime createdAt;
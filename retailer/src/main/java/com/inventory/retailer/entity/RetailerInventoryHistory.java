@@ -1,22 +1,38 @@
 package com.inventory.retailer.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.inventory.history.HistoryEntry;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "retailer_inventory_history")
+@Table(name = "retailer_inventory_history", indexes = {
+    // Keyset pagination: newest-first scans per retailer / per retailer product
+    @Index(name = "idx_rih_retailer_date_id", columnList = "retailerId, transactionDate, id"),
+    @Index(name = "idx_rih_retailer_product_date_id", columnList = "retailerId, productId, transactionDate, id"),
+    // One row per queued movement, however often the history writer retries or replays it
+    @Index(name = "uk_rih_history_key", columnList = "historyKey", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class RetailerInventoryHistory {
+public class RetailerInventoryHistory implements HistoryEntry {
     
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "retailer_inventory_history_seq")
+    @SequenceGenerator(name = "retailer_inventory_history_seq", sequenceName = "retailer_inventory_history_seq", allocationSize = 50)
     private Long id;
+
+    // Idempotency key assigned by the history writer when the movement is queued
+    @Column(updatable = false)
+    private UUID historyKey;
     
     private Long retailerId;
     private Long productId;
@@ -37,4 +53,10 @@ public class RetailerInventoryHistory {
     private LocalDateTime transactionDate;
     
     private String notes;
+
+    @Override
+    @JsonIgnore
+    public Long getOwnerId() {
+        return retailerId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.inventory.retailer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated inventory movements per (retailer, product, transactionType) and time bucket.
+ * Maintained alongside the history inserts, so analytics never scan the raw history.
+ */
+@Entity
+@Table(name = "retailer_movement_rollup", uniqueConstraints = {
+    // One row per bucket; also serves range queries by retailer + granularity + time
+    @UniqueConstraint(name = "uk_rmr_bucket",
+        columnNames = {"retailerId", "granularity", "bucketStart", "productId", "transactionType"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetailerMovementRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long retailerId;
+
+    @Column(nullable = false)
+    private String granularity;  // HOUR, DAY
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;  // Start of the hour / day
+
+    private Long productId;
+    private String productName;
+
+    @Column(nullable = false)
+    private String transactionType;  // PURCHASED, SOLD
+
+    private long transactionCount;  // History rows in the bucket
+    private long totalQuantity;     // Sum of their quantities
+    private double totalValue;      // Sum of quantity * priceAtTransaction
+}
@@ -3,7 +3,7 @@ package com.inventory.retailer.messaging;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
 
-import com.inventory.retailer.dto.OrderUpdateDTO;
+import com.inventory.messaging.dto.OrderUpdateDTO;
 import com.inventory.retailer.service.RetailerService;
 
 import lombok.extern.slf4j.Slf4j;
@@ -18,20 +18,23 @@ public class StatusUpdateConsumer {
         this.retailerService = retailerService;
     }
 
-    @RabbitListener(queues = "retailer.status.${retailer.id}")
+    /**
+     * Failures propagate: the container retries with backoff, then parks the update in the
+     * queue's dead-letter queue instead of losing a completed order
+     */
+    @RabbitListener(queues = "retailer.status.${retailer.id}", containerFactory = "statusUpdateContainerFactory")
     public void consumeStatusUpdate(OrderUpdateDTO update) {
-        log.info("📢 Received status update for order {}: {}", update.getOrderId(), update.getStatus());
-        
-        try {
-            if ("COMPLETED".equals(update.getStatus())) {
-                retailerService.fulfillPurchase(update.getOrderId(), update.getPrice());
-                log.info("✅ Order {} fulfillment triggered", update.getOrderId());
-            } else {
-                log.info("ℹ️ Order {} status updated to {}", update.getOrderId(), update.getStatus());
-                // Optionally update tracking status for non-terminal states
-            }
-        } catch (Exception e) {
-            log.error("❌ Failed to process status update for order {}: {}", update.getOrderId(), e.getMessage());
+        log.info("📢 Received status update for order {}: {}", update.orderId(), update.status());
+
+        if ("COMPLETED".equals(update.status())) {
+            retailerService.fulfillPurchase(update.orderId(), update.price());
+            log.info("✅ Order {} fulfillment triggered", update.orderId());
+        } else if ("PARTIALLY_COMPLETED".equals(update.status())) {
+            retailerService.fulfillPartialPurchase(update.orderId(), update.price(), update.quantity());
+            log.info("✅ Order {} partially fulfilled: {} units ({})", update.orderId(), update.quantity(), update.message());
+        } else {
+            log.info("ℹ️ Order {} status updated to {}", update.orderId(), update.status());
+            // Optionally update tracking status for non-terminal states
         }
     }
 }
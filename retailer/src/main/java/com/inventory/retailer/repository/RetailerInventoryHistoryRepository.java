@@ -1,13 +1,27 @@
 package com.inventory.retailer.repository;
 
+import com.inventory.history.HistoryRepository;
 import com.inventory.retailer.entity.RetailerInventoryHistory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface RetailerInventoryHistoryRepository extends JpaRepository<RetailerInventoryHistory, Long> {
+public interface RetailerInventoryHistoryRepository extends JpaRepository<RetailerInventoryHistory, Long>,
+        HistoryRepository<RetailerInventoryHistory> {
     
     // Find history for a specific product
     List<RetailerInventoryHistory> findByProductIdOrderByTransactionDateDesc(Long productId);
@@ -15,8 +29,59 @@ public interface RetailerInventoryHistoryRepository extends JpaRepository<Retail
     // Find history for a retailer
     List<RetailerInventoryHistory> findByRetailerIdOrderByTransactionDateDesc(Long retailerId);
     
+    @Override
+    @Query("SELECT h.historyKey FROM RetailerInventoryHistory h WHERE h.historyKey IN :keys")
+    List<UUID> findStoredKeys(@Param("keys") Collection<UUID> keys);
+
+    // Keyset pages, newest first: the first page, then everything strictly older than the cursor
+    @Override
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<RetailerInventoryHistory> findOwnerPage(@Param("retailerId") Long retailerId, Pageable pageable);
+
+    @Override
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId"
+            + " AND (h.transactionDate < :date OR (h.transactionDate = :date AND h.id < :id))"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<RetailerInventoryHistory> findOwnerPageBefore(@Param("retailerId") Long retailerId,
+            @Param("date") LocalDateTime date, @Param("id") Long id, Pageable pageable);
+
+    @Override
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId AND h.productId = :productId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<RetailerInventoryHistory> findProductPage(@Param("retailerId") Long retailerId,
+            @Param("productId") Long productId, Pageable pageable);
+
+    @Override
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId AND h.productId = :productId"
+            + " AND (h.transactionDate < :date OR (h.transactionDate = :date AND h.id < :id))"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<RetailerInventoryHistory> findProductPageBefore(@Param("retailerId") Long retailerId,
+            @Param("productId") Long productId, @Param("date") LocalDateTime date, @Param("id") Long id,
+            Pageable pageable);
+
+    // Server-side cursor for exports: rows arrive fetch-size at a time instead of all at once
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    Stream<RetailerInventoryHistory> streamOwnerHistory(@Param("retailerId") Long retailerId);
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h FROM RetailerInventoryHistory h WHERE h.retailerId = :retailerId AND h.productId = :productId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    Stream<RetailerInventoryHistory> streamProductHistory(@Param("retailerId") Long retailerId,
+            @Param("productId") Long productId);
+    
     // Find history by transaction type
     List<RetailerInventoryHistory> findByRetailerIdAndTransactionTypeOrderByTransactionDateDesc(
         Long retailerId, String transactionType
     );
-}
\ No newline at end of file
+
+    // Keeps history inserts out while rollups or snapshots are computed from it
+    @Override
+    @Modifying
+    @Query(value = "LOCK TABLE {h-schema}retailer_inventory_history IN SHARE MODE", nativeQuery = true)
+    void lockHistory();
+}
@@ -2,6 +2,8 @@ package com.inventory.retailer.repository;
 
 import com.inventory.retailer.entity.RetailerInventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +17,20 @@ public interface RetailerInventoryRepository extends JpaRepository<RetailerInven
     
     // Find all inventory for a retailer
     List<RetailerInventory> findByRetailerId(Long retailerId);
+
+    // Take quantity out of stock only if enough is left, in one statement; empty if it was not
+    @Query(value = "UPDATE {h-schema}retailer_inventory"
+            + " SET quantity_on_hand = quantity_on_hand - :quantity, last_updated = now()"
+            + " WHERE retailer_id = :retailerId AND product_id = :productId AND quantity_on_hand >= :quantity"
+            + " RETURNING product_name AS \"productName\", quantity_on_hand AS \"quantityOnHand\","
+            + " average_purchase_price AS \"averagePurchasePrice\"", nativeQuery = true)
+    Optional<StockLevel> decrementStock(@Param("retailerId") Long retailerId,
+                                        @Param("productId") Long productId,
+                                        @Param("quantity") int quantity);
+
+    interface StockLevel {
+        String getProductName();
+        int getQuantityOnHand();
+        float getAveragePurchasePrice();
+    }
 }
\ No newline at end of file
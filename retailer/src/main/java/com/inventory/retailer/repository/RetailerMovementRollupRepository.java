@@ -0,0 +1,59 @@
+package com.inventory.retailer.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.inventory.history.MovementRollupRepository;
+import com.inventory.retailer.entity.RetailerMovementRollup;
+
+@Repository
+public interface RetailerMovementRollupRepository extends JpaRepository<RetailerMovementRollup, Long>,
+        MovementRollupRepository<RetailerMovementRollup> {
+
+    // Add a batch's totals to its bucket, creating the bucket on first use
+    @Override
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}retailer_movement_rollup AS r"
+            + " (retailer_id, granularity, bucket_start, product_id, product_name, transaction_type,"
+            + " transaction_count, total_quantity, total_value)"
+            + " VALUES (:retailerId, :granularity, :bucketStart, :productId, :productName, :transactionType,"
+            + " :count, :quantity, :value)"
+            + " ON CONFLICT (retailer_id, granularity, bucket_start, product_id, transaction_type) DO UPDATE SET"
+            + " product_name = EXCLUDED.product_name,"
+            + " transaction_count = r.transaction_count + EXCLUDED.transaction_count,"
+            + " total_quantity = r.total_quantity + EXCLUDED.total_quantity,"
+            + " total_value = r.total_value + EXCLUDED.total_value", nativeQuery = true)
+    void addToBucket(@Param("retailerId") Long retailerId, @Param("granularity") String granularity,
+                     @Param("bucketStart") LocalDateTime bucketStart, @Param("productId") Long productId,
+                     @Param("productName") String productName, @Param("transactionType") String transactionType,
+                     @Param("count") long count, @Param("quantity") long quantity, @Param("value") double value);
+
+    // Recompute one granularity from the raw history (unit is a date_trunc field: hour, day)
+    @Override
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}retailer_movement_rollup"
+            + " (retailer_id, granularity, bucket_start, product_id, product_name, transaction_type,"
+            + " transaction_count, total_quantity, total_value)"
+            + " SELECT retailer_id, :granularity, date_trunc(:unit, transaction_date), product_id, MAX(product_name),"
+            + " transaction_type, COUNT(*), SUM(quantity), SUM(quantity * price_at_transaction)"
+            + " FROM {h-schema}retailer_inventory_history"
+            + " GROUP BY retailer_id, 3, product_id, transaction_type", nativeQuery = true)
+    int rebuildFromHistory(@Param("granularity") String granularity, @Param("unit") String unit);
+
+    @Override
+    @Query("SELECT r FROM RetailerMovementRollup r WHERE r.retailerId = :retailerId"
+            + " AND r.granularity = :granularity AND r.bucketStart >= :from AND r.bucketStart < :to"
+            + " AND (:productId IS NULL OR r.productId = :productId)"
+            + " AND (:transactionType IS NULL OR r.transactionType = :transactionType)"
+            + " ORDER BY r.bucketStart, r.productId, r.transactionType")
+    List<RetailerMovementRollup> findBuckets(@Param("retailerId") Long retailerId,
+            @Param("granularity") String granularity, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("productId") Long productId,
+            @Param("transactionType") String transactionType);
+}
@@ -0,0 +1,77 @@
+package com.inventory.retailer.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.inventory.history.StockSnapshotRepository;
+import com.inventory.retailer.entity.RetailerStockSnapshot;
+
+@Repository
+public interface RetailerStockSnapshotRepository extends JpaRepository<RetailerStockSnapshot, Long>,
+        StockSnapshotRepository<RetailerStockSnapshot> {
+
+    // Nearest snapshot at or before the given time, null if there is none
+    @Override
+    @Query("SELECT MAX(s.snapshotAt) FROM RetailerStockSnapshot s"
+            + " WHERE s.retailerId = :retailerId AND s.snapshotAt <= :at")
+    LocalDateTime findLatestSnapshotAt(@Param("retailerId") Long retailerId, @Param("at") LocalDateTime at);
+
+    // New snapshot = previous snapshot + net stock change of the history in (previous, cutoff]
+    @Override
+    @Modifying
+    @Query(value = "INSERT INTO {h-schema}retailer_stock_snapshot (retailer_id, product_id, snapshot_at, stock)"
+            + " SELECT :retailerId, product_id, :cutoff, SUM(stock) FROM ("
+            + "   SELECT product_id, stock FROM {h-schema}retailer_stock_snapshot"
+            + "   WHERE retailer_id = :retailerId AND snapshot_at = :previous"
+            + "   UNION ALL"
+            + "   SELECT product_id, stock_after - stock_before FROM {h-schema}retailer_inventory_history"
+            + "   WHERE retailer_id = :retailerId AND transaction_date > :previous AND transaction_date <= :cutoff"
+            + " ) s GROUP BY product_id", nativeQuery = true)
+    int takeSnapshot(@Param("retailerId") Long retailerId, @Param("previous") LocalDateTime previous,
+                     @Param("cutoff") LocalDateTime cutoff);
+
+    // Stock as of a time: the base snapshot plus the history after it
+    @Override
+    @Query(value = "SELECT s.product_id AS \"productId\", i.product_name AS \"productName\", SUM(s.stock) AS \"stock\""
+            + " FROM ("
+            + "   SELECT product_id, stock FROM {h-schema}retailer_stock_snapshot"
+            + "   WHERE retailer_id = :retailerId AND snapshot_at = :base"
+            + "   UNION ALL"
+            + "   SELECT product_id, stock_after - stock_before FROM {h-schema}retailer_inventory_history"
+            + "   WHERE retailer_id = :retailerId AND transaction_date > :base AND transaction_date <= :asOf"
+            + " ) s LEFT JOIN {h-schema}retailer_inventory i ON i.retailer_id = :retailerId AND i.product_id = s.product_id"
+            + " GROUP BY s.product_id, i.product_name ORDER BY s.product_id", nativeQuery = true)
+    List<StockAt> findStockAsOf(@Param("retailerId") Long retailerId, @Param("base") LocalDateTime base,
+                                @Param("asOf") LocalDateTime asOf);
+
+    @Override
+    @Query(value = "SELECT s.product_id AS \"productId\", i.product_name AS \"productName\", SUM(s.stock) AS \"stock\""
+            + " FROM ("
+            + "   SELECT product_id, stock FROM {h-schema}retailer_stock_snapshot"
+            + "   WHERE retailer_id = :retailerId AND snapshot_at = :base AND product_id = :productId"
+            + "   UNION ALL"
+            + "   SELECT product_id, stock_after - stock_before FROM {h-schema}retailer_inventory_history"
+            + "   WHERE retailer_id = :retailerId AND product_id = :productId"
+            + "   AND transaction_date > :base AND transaction_date <= :asOf"
+            + " ) s LEFT JOIN {h-schema}retailer_inventory i ON i.retailer_id = :retailerId AND i.product_id = s.product_id"
+            + " GROUP BY s.product_id, i.product_name", nativeQuery = true)
+    List<StockAt> findProductStockAsOf(@Param("retailerId") Long retailerId, @Param("productId") Long productId,
+                                       @Param("base") LocalDateTime base, @Param("asOf") LocalDateTime asOf);
+
+    @Override
+    @Modifying
+    @Query("DELETE FROM RetailerStockSnapshot s WHERE s.retailerId = :retailerId AND s.snapshotAt >= :from")
+    int deleteFrom(@Param("retailerId") Long retailerId, @Param("from") LocalDateTime from);
+
+    @Override
+    @Modifying
+    @Query("DELETE FROM RetailerStockSnapshot s WHERE s.retailerId = :retailerId AND s.snapshotAt < :before"
+            + " AND s.snapshotAt < (SELECT MAX(l.snapshotAt) FROM RetailerStockSnapshot l WHERE l.retailerId = :retailerId)")
+    int deleteOlderThan(@Param("retailerId") Long retailerId, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,25 @@
+package com.inventory.retailer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventory.history.HistoryQueries;
+import com.inventory.retailer.entity.RetailerInventoryHistory;
+import com.inventory.retailer.repository.RetailerInventoryHistoryRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Keyset pages and NDJSON exports of this retailer's inventory history
+ */
+@Service
+public class HistoryQueryService extends HistoryQueries<RetailerInventoryHistory> {
+
+    public HistoryQueryService(RetailerInventoryHistoryRepository historyRepository,
+                               EntityManager entityManager,
+                               ObjectMapper objectMapper,
+                               @Value("${retailer.id}") Long retailerId) {
+        super(historyRepository, entityManager, objectMapper, retailerId);
+    }
+}
@@ -0,0 +1,36 @@
+package com.inventory.retailer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventory.history.HistoryWriter;
+import com.inventory.retailer.entity.RetailerInventoryHistory;
+import com.inventory.retailer.repository.RetailerInventoryHistoryRepository;
+
+/**
+ * Batched, asynchronous writer of this retailer's stock movements (history.writer.*)
+ */
+@Service
+public class InventoryHistoryWriter extends HistoryWriter<RetailerInventoryHistory> {
+
+    public InventoryHistoryWriter(RetailerInventoryHistoryRepository historyRepository,
+                                  MovementRollupService rollupService,
+                                  StockSnapshotService snapshotService,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${history.writer.buffer-size:8192}") int bufferSize,
+                                  @Value("${history.writer.batch-size:500}") int batchSize,
+                                  @Value("${history.writer.flush-interval-ms:100}") long flushIntervalMs,
+                                  @Value("${history.writer.max-attempts:5}") int maxAttempts,
+                                  @Value("${history.writer.durability:wal}") String durability,
+                                  @Value("${history.writer.wal-path:data/retailer-history.wal}") String walPath,
+                                  @Value("${history.writer.wal-segment-bytes:16777216}") long walSegmentBytes,
+                                  @Value("${history.writer.quarantine-path:data/retailer-history.quarantine}") String quarantinePath,
+                                  @Value("${history.writer.wal-fsync:true}") boolean fsync) {
+        super(RetailerInventoryHistory.class, historyRepository, rollupService, snapshotService, transactionManager,
+                objectMapper, bufferSize, batchSize, flushIntervalMs, maxAttempts, durability, walPath, walSegmentBytes,
+                quarantinePath, fsync);
+    }
+}
@@ -0,0 +1,25 @@
+package com.inventory.retailer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.inventory.history.MovementRollups;
+import com.inventory.retailer.entity.RetailerInventoryHistory;
+import com.inventory.retailer.entity.RetailerMovementRollup;
+import com.inventory.retailer.repository.RetailerInventoryHistoryRepository;
+import com.inventory.retailer.repository.RetailerMovementRollupRepository;
+
+/**
+ * Hourly and daily movement totals per (retailer, product, transactionType)
+ */
+@Service
+public class MovementRollupService extends MovementRollups<RetailerInventoryHistory, RetailerMovementRollup> {
+
+    public MovementRollupService(RetailerMovementRollupRepository rollupRepository,
+                                 RetailerInventoryHistoryRepository historyRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${retailer.id}") Long retailerId) {
+        super(rollupRepository, historyRepository, transactionManager, retailerId);
+    }
+}
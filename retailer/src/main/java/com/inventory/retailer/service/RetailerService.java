@@ -2,12 +2,12 @@ package com.inventory.retailer.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.inventory.retailer.client.WarehouseClient;
-import com.inventory.retailer.dto.ItemResponse;
 import com.inventory.retailer.entity.Purchase;
 import com.inventory.retailer.entity.RetailerInventory;
 import com.inventory.retailer.entity.RetailerInventoryHistory;
@@ -17,6 +17,7 @@ import com.inventory.retailer.repository.OrderTrackingRepository;
 import com.inventory.retailer.repository.PurchaseRepository;
 import com.inventory.retailer.repository.RetailerInventoryHistoryRepository;
 import com.inventory.retailer.repository.RetailerInventoryRepository;
+import com.inventory.retailer.repository.RetailerInventoryRepository.StockLevel;
 import com.inventory.retailer.repository.SaleRepository;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -33,6 +34,7 @@ public class RetailerService {
     private final RetailerInventoryHistoryRepository inventoryHistoryRepository;
     private final OrderTrackingRepository orderTrackingRepository;
     private final WarehouseClient warehouseClient;
+    private final InventoryHistoryWriter historyWriter;
 
     @Value("${retailer.id}")
     private Long retailerId;
@@ -43,39 +45,43 @@ public class RetailerService {
             RetailerInventoryRepository inventoryRepository,
             RetailerInventoryHistoryRepository inventoryHistoryRepository,
             OrderTrackingRepository orderTrackingRepository,
-            WarehouseClient warehouseClient) {
+            WarehouseClient warehouseClient,
+            InventoryHistoryWriter historyWriter) {
         this.purchaseRepository = purchaseRepository;
         this.saleRepository = saleRepository;
         this.inventoryRepository = inventoryRepository;
         this.inventoryHistoryRepository = inventoryHistoryRepository;
         this.orderTrackingRepository = orderTrackingRepository;
         this.warehouseClient = warehouseClient;
+        this.historyWriter = historyWriter;
     }
 
     /**
-     * Buy items from warehouse via order-service (Async Flow)
+     * Buy items from warehouse via order-service (Async Flow).
+     * No transaction is open during the HTTP call; the tracking row is saved in its own
+     * short transaction once order-service has accepted the order.
      */
-    @Transactional
-    public OrderTracking buyFromWarehouse(Long itemId, int quantity) {
+    public CompletableFuture<OrderTracking> buyFromWarehouse(Long itemId, int quantity) {
         log.info("\n🛒 [Retailer-" + retailerId + "] Requesting buy from warehouse:");
         log.info("   Item ID: " + itemId);
         log.info("   Quantity: " + quantity);
 
         // Call order-service to initiate purchase
-        ItemResponse itemResponse = warehouseClient.buyFromWarehouse(retailerId, itemId, quantity);
-
-        log.info("✅ Order Accepted with ID: " + itemResponse.getOrderId());
-
-        // Create OrderTracking record
-        OrderTracking tracking = new OrderTracking();
-        tracking.setOrderId(itemResponse.getOrderId());
-        tracking.setProductId(itemId);
-        tracking.setProductName(itemResponse.getProductName());
-        tracking.setQuantity(quantity);
-        tracking.setStatus(itemResponse.getStatus());
-        tracking.setPrice(itemResponse.getPrice());
-        
-        return orderTrackingRepository.save(tracking);
+        return warehouseClient.buyFromWarehouseAsync(retailerId, itemId, quantity)
+                .thenApply(itemResponse -> {
+                    log.info("✅ Order Accepted with ID: " + itemResponse.orderId());
+
+                    // Create OrderTracking record
+                    OrderTracking tracking = new OrderTracking();
+                    tracking.setOrderId(itemResponse.orderId());
+                    tracking.setProductId(itemId);
+                    tracking.setProductName(itemResponse.productName());
+                    tracking.setQuantity(quantity);
+                    tracking.setStatus(itemResponse.status());
+                    tracking.setPrice(itemResponse.price());
+
+                    return orderTrackingRepository.save(tracking);
+                });
     }
 
     /**
@@ -83,15 +89,29 @@ public class RetailerService {
      */
     @Transactional
     public void fulfillPurchase(String orderId, float price) {
+        fulfill(orderId, price, "COMPLETED", null);
+    }
+
+    /**
+     * Fulfill the delivered part of a split order whose other parts failed: only those units are added
+     */
+    @Transactional
+    public void fulfillPartialPurchase(String orderId, float price, int delivered) {
+        fulfill(orderId, price, "PARTIALLY_COMPLETED", delivered);
+    }
+
+    private void fulfill(String orderId, float price, String status, Integer delivered) {
         OrderTracking tracking = orderTrackingRepository.findByOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Order tracking not found for: " + orderId));
 
-        if ("COMPLETED".equals(tracking.getStatus())) {
+        if ("COMPLETED".equals(tracking.getStatus()) || "PARTIALLY_COMPLETED".equals(tracking.getStatus())) {
             log.info("⚠️ Order {} already fulfilled", orderId);
             return;
         }
 
-        log.info("🎊 Fulfilling order {}: {} x {} @ ${}", orderId, tracking.getProductName(), tracking.getQuantity(), price);
+        int quantity = delivered != null ? delivered : tracking.getQuantity();
+        log.info("🎊 Fulfilling order {}: {} x {} of {} @ ${}", orderId, tracking.getProductName(), quantity,
+                tracking.getQuantity(), price);
 
         // Update tracking price
         tracking.setPrice(price);
@@ -101,7 +121,7 @@ public class RetailerService {
         purchase.setRetailerId(retailerId);
         purchase.setProductName(tracking.getProductName());
         purchase.setPrice(price);
-        purchase.setQuantity(tracking.getQuantity());
+        purchase.setQuantity(quantity);
         purchase.setWarehouseItemId(tracking.getProductId()); // Using internal product ID
 
         Purchase savedPurchase = purchaseRepository.save(purchase);
@@ -110,13 +130,13 @@ public class RetailerService {
         updateInventoryAfterPurchase(
                 tracking.getProductId(),
                 tracking.getProductName(),
-                tracking.getQuantity(),
+                quantity,
                 price,
                 savedPurchase.getId()
         );
 
         // STEP 3: Update tracking status
-        tracking.setStatus("COMPLETED");
+        tracking.setStatus(status);
         orderTrackingRepository.save(tracking);
         
         log.info("✅ Order {} fulfilled and added to inventory", orderId);
@@ -132,38 +152,57 @@ public class RetailerService {
         log.info("   Quantity: " + quantity);
         log.info("   Customer: " + customerName);
 
-        // STEP 1: Check if we have the product in inventory
-        RetailerInventory inventory = inventoryRepository
-                .findByRetailerIdAndProductId(retailerId, productId)
-                .orElseThrow(() -> new RuntimeException("Product not found in inventory"));
-
-        // STEP 2: Check if we have enough stock
-        if (inventory.getQuantityOnHand() < quantity) {
-            throw new RuntimeException(
-                    "Insufficient stock. Available: " + inventory.getQuantityOnHand() +
-                            ", Requested: " + quantity
-            ); 
-        }
+        // STEP 1: Take the stock in one conditional UPDATE, rejecting insufficient stock atomically
+        StockLevel level = inventoryRepository.decrementStock(retailerId, productId, quantity)
+                .orElseThrow(() -> insufficientStock(productId, quantity));
 
-        // STEP 3: Create Sale record (transaction history)
+        int stockAfter = level.getQuantityOnHand();
+        int stockBefore = stockAfter + quantity;
+
+        // STEP 2: Create Sale record (transaction history)
         Sale sale = new Sale();
         sale.setRetailerId(retailerId);
         sale.setProductId(productId);
-        sale.setProductName(inventory.getProductName());
+        sale.setProductName(level.getProductName());
         sale.setQuantitySold(quantity);
-        sale.setSellingPrice(inventory.getAveragePurchasePrice() * 1.15f); // 15% markup
+        sale.setSellingPrice(level.getAveragePurchasePrice() * 1.15f); // 15% markup
         sale.setCustomerName(customerName);
         sale.setSaleDate(LocalDateTime.now());
 
+        // Sequence id: the insert is deferred to the commit flush, history follows asynchronously
         Sale savedSale = saleRepository.save(sale);
         log.info("📝 Sale record created (ID: " + savedSale.getId() + ")");
 
-        // STEP 4: Update RetailerInventory (reduce stock)
-        updateInventoryAfterSale(productId, quantity, savedSale.getId());
+        log.info("📦 Updated inventory after sale");
+        log.info("   Stock: " + stockBefore + " → " + stockAfter);
+
+        // STEP 3: Record history
+        recordInventoryHistory(
+                productId,
+                level.getProductName(),
+                "SOLD",
+                quantity,
+                level.getAveragePurchasePrice(),
+                stockBefore,
+                stockAfter,
+                savedSale.getId(),
+                "Sold to customer"
+        );
 
         return savedSale;
     }
 
+    /**
+     * Explain why the conditional decrement matched no row
+     */
+    private RuntimeException insufficientStock(Long productId, int quantity) {
+        return inventoryRepository.findByRetailerIdAndProductId(retailerId, productId)
+                .<RuntimeException>map(inventory -> new RuntimeException(
+                        "Insufficient stock. Available: " + inventory.getQuantityOnHand() +
+                                ", Requested: " + quantity))
+                .orElseGet(() -> new RuntimeException("Product not found in inventory"));
+    }
+
     /**
      * Update inventory after purchasing from warehouse
      */
@@ -235,39 +274,6 @@ public class RetailerService {
         );
     }
 
-    /**
-     * Update inventory after selling to customer
-     */
-    private void updateInventoryAfterSale(Long productId, int quantity, Long saleId) {
-        RetailerInventory inventory = inventoryRepository
-                .findByRetailerIdAndProductId(retailerId, productId)
-                .orElseThrow(() -> new RuntimeException("Product not in inventory"));
-
-        int stockBefore = inventory.getQuantityOnHand();
-        int stockAfter = stockBefore - quantity;
-
-        inventory.setQuantityOnHand(stockAfter);
-        inventory.setLastUpdated(LocalDateTime.now());
-
-        inventoryRepository.save(inventory);
-
-        log.info("📦 Updated inventory after sale");
-        log.info("   Stock: " + stockBefore + " → " + stockAfter);
-
-        // Record history
-        recordInventoryHistory(
-                productId,
-                inventory.getProductName(),
-                "SOLD",
-                quantity,
-                inventory.getAveragePurchasePrice(),
-                stockBefore,
-                stockAfter,
-                saleId,
-                "Sold to customer"
-        );
-    }
-
     /**
      * Record inventory history
      */
@@ -295,7 +301,7 @@ public class RetailerService {
         history.setTransactionDate(LocalDateTime.now());
         history.setNotes(notes);
 
-        inventoryHistoryRepository.save(history);
+        historyWriter.append(history);
 
         log.info("📊 Inventory history recorded: " + transactionType);
     }
@@ -0,0 +1,26 @@
+package com.inventory.retailer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.inventory.history.StockSnapshots;
+import com.inventory.retailer.entity.RetailerInventoryHistory;
+import com.inventory.retailer.repository.RetailerInventoryHistoryRepository;
+import com.inventory.retailer.repository.RetailerStockSnapshotRepository;
+
+/**
+ * Periodic stock snapshots of this retailer and as-of stock queries
+ */
+@Service
+public class StockSnapshotService extends StockSnapshots<RetailerInventoryHistory> {
+
+    public StockSnapshotService(RetailerStockSnapshotRepository snapshotRepository,
+                                RetailerInventoryHistoryRepository historyRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${retailer.id}") Long retailerId,
+                                @Value("${stock.snapshot.settle-ms:60000}") long settleMs,
+                                @Value("${stock.snapshot.retention-days:90}") int retentionDays) {
+        super(snapshotRepository, historyRepository, transactionManager, retailerId, settleMs, retentionDays);
+    }
+}
@@ -1,10 +1,33 @@
 package com.inventory.warehouse.config;
 
+import java.util.List;
+
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+import com.inventory.messaging.DeadLetterController;
+import com.inventory.messaging.DeadLetterPolicies;
+import com.inventory.messaging.DeadLetterReplayer;
+import com.inventory.messaging.DeadLetters;
+import com.inventory.messaging.ListenerContainers;
+import com.inventory.messaging.ListenerSettings;
+import com.inventory.messaging.WireFormat;
 
 @Configuration
 public class RabbitMQConfig {
@@ -14,6 +37,16 @@ public class RabbitMQConfig {
     public static final String STATUS_UPDATE_EXCHANGE = "status.update.exchange";
     public static final String STATUS_UPDATE_ROUTING_KEY = "status.update";
 
+    public static final String ORDER_ROUTED_EXCHANGE = "order.routed.exchange";
+    public static final String ROUTED_ORDER_QUEUE_PREFIX = "order.routed.warehouse.";
+
+    public static final String STOCK_RESYNC_ROUTING_KEY = "warehouse.stock.resync";
+    public static final String STOCK_PAGE_ROUTING_KEY = "warehouse.stock.page";
+    public static final String STOCK_BATCH_ROUTING_KEY = "warehouse.stock.batch";
+
+    @Value("${warehouse.id:1}")
+    private Long warehouseId;
+
     // create the topic exchange for communication between retailer and warehouse
     @Bean
     public TopicExchange warehouseExchange() {
@@ -25,9 +58,108 @@ public class RabbitMQConfig {
         return new TopicExchange(STATUS_UPDATE_EXCHANGE);
     }
 
-    // configure the message converter to use JSON format for messages
+    // declare this warehouse's routed-order queue itself, so a new warehouse id needs no
+    // order-service change: order-service starts routing to it after its first stock broadcast
+    @Bean
+    public TopicExchange orderRoutedExchange() {
+        return new TopicExchange(ORDER_ROUTED_EXCHANGE);
+    }
+
+    // same arguments as order-service's declaration of this queue (DeadLetters.queue)
+    @Bean
+    public Queue routedOrderQueue() {
+        return DeadLetters.queue(ROUTED_ORDER_QUEUE_PREFIX + warehouseId);
+    }
+
+    @Bean
+    public Declarables routedOrderDeadLetterQueue() {
+        return DeadLetters.deadLetterQueue(ROUTED_ORDER_QUEUE_PREFIX + warehouseId);
+    }
+
+    // only the consumer declares the retry queues, their delays come from its listener settings
+    @Bean
+    public Declarables routedOrderRetryQueues() {
+        return DeadLetters.retryQueues(ROUTED_ORDER_QUEUE_PREFIX + warehouseId, orderListenerSettings());
+    }
+
+    @Bean
+    public Binding routedOrderBinding(Queue routedOrderQueue, TopicExchange orderRoutedExchange) {
+        return BindingBuilder.bind(routedOrderQueue).to(orderRoutedExchange).with("warehouse." + warehouseId + ".routed");
+    }
+
+    // every warehouse gets its own copy of a resync request from order-service
+    @Bean
+    public Queue stockResyncQueue() {
+        return new Queue("warehouse.resync." + warehouseId, true);
+    }
+
+    @Bean
+    public Binding stockResyncBinding(Queue stockResyncQueue, TopicExchange warehouseExchange) {
+        return BindingBuilder.bind(stockResyncQueue).to(warehouseExchange).with(STOCK_RESYNC_ROUTING_KEY);
+    }
+
+    // rejected routed orders (retries spent, unreadable body) are kept in the queue's .dlq
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return DeadLetters.exchange();
+    }
+
+    // rejected messages reach the dead-letter exchange through a policy on the queue, set on start
+    @Bean
+    public DeadLetterPolicies deadLetterPolicies(RestClient.Builder restClientBuilder, RabbitProperties rabbitProperties,
+            @Value("${messaging.dead-letters.management-url}") String managementUrl) {
+        return new DeadLetterPolicies(restClientBuilder, managementUrl, rabbitProperties,
+                List.of(ROUTED_ORDER_QUEUE_PREFIX + warehouseId));
+    }
+
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+            @Value("${messaging.replay.batch-size:100}") int batchSize,
+            @Value("${messaging.replay.pause-ms:1000}") long pauseMs) {
+        return new DeadLetterReplayer(rabbitTemplate, amqpAdmin, List.of(ROUTED_ORDER_QUEUE_PREFIX + warehouseId),
+                batchSize, pauseMs);
+    }
+
+    // parked-message counts and background replays under messaging.dead-letters.path
+    @Bean
+    public DeadLetterController deadLetterController(DeadLetterReplayer deadLetterReplayer,
+            @Value("${messaging.dead-letters.path}") String path) {
+        return new DeadLetterController(deadLetterReplayer, path);
+    }
+
+    // routed orders are stored in batches: one transaction and one acknowledgement per batch
+    @Bean
+    @ConfigurationProperties("messaging.listeners.orders")
+    public ListenerSettings orderListenerSettings() {
+        return ListenerSettings.batch(50, 100);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory orderContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, orderListenerSettings());
+    }
+
+    // resync requests are rare and each one streams the whole catalogue
+    @Bean
+    @ConfigurationProperties("messaging.listeners.stock-resync")
+    public ListenerSettings stockResyncListenerSettings() {
+        ListenerSettings settings = ListenerSettings.single();
+        settings.setPrefetch(1);
+        return settings;
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory stockResyncContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        return ListenerContainers.factory(configurer, connectionFactory, stockResyncListenerSettings());
+    }
+
+    // outgoing messages use messaging.wire-format (JSON or BINARY), incoming ones are read by content type
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(@Value("${messaging.wire-format:JSON}") WireFormat wireFormat) {
+        return wireFormat.messageConverter();
     }
 }
\ No newline at end of file
@@ -1,8 +1,13 @@
 package com.inventory.warehouse.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,14 +19,24 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.inventory.history.HistoryPage;
+import com.inventory.history.StockAsOf;
+import com.inventory.messaging.dto.OrderUpdateDTO;
+import com.inventory.warehouse.dto.ImportResult;
 import com.inventory.warehouse.entity.Item;
 import com.inventory.warehouse.entity.PendingOrder;
 import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import com.inventory.warehouse.entity.WarehouseMovementRollup;
 import com.inventory.warehouse.messaging.StatusUpdateProducer;
 import com.inventory.warehouse.repository.PendingOrderRepository;
 import com.inventory.warehouse.service.AuthService;
+import com.inventory.warehouse.service.HistoryQueryService;
+import com.inventory.warehouse.service.ItemImportService;
 import com.inventory.warehouse.service.ItemService;
+import com.inventory.warehouse.service.MovementRollupService;
+import com.inventory.warehouse.service.StockSnapshotService;
 
 @RestController
 @RequestMapping("/api/warehouse")
@@ -32,13 +47,25 @@ public class ItemController {
     private final RabbitTemplate rabbitTemplate;
     private final PendingOrderRepository pendingOrderRepository;
     private final StatusUpdateProducer statusUpdateProducer;
+    private final HistoryQueryService historyQueryService;
+    private final MovementRollupService rollupService;
+    private final StockSnapshotService snapshotService;
+    private final ItemImportService importService;
 
-    public ItemController(ItemService service, AuthService authService, RabbitTemplate rabbitTemplate, PendingOrderRepository pendingOrderRepository, StatusUpdateProducer statusUpdateProducer) {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    public ItemController(ItemService service, AuthService authService, RabbitTemplate rabbitTemplate, PendingOrderRepository pendingOrderRepository, StatusUpdateProducer statusUpdateProducer,
+                          HistoryQueryService historyQueryService, MovementRollupService rollupService,
+                          StockSnapshotService snapshotService, ItemImportService importService) {
         this.service = service;
         this.authService = authService;
         this.rabbitTemplate = rabbitTemplate;
         this.pendingOrderRepository = pendingOrderRepository;
         this.statusUpdateProducer = statusUpdateProducer;
+        this.historyQueryService = historyQueryService;
+        this.rollupService = rollupService;
+        this.snapshotService = snapshotService;
+        this.importService = importService;
     }
 
     @PostMapping("/create")
@@ -46,6 +73,22 @@ public class ItemController {
         return service.createItem(item);
     }
 
+    /**
+     * Bulk catalogue import, CSV with a header row (productName,price,stockOnHand)
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ImportResult importCsv(InputStream body) throws IOException {
+        return importService.importCsv(body);
+    }
+
+    /**
+     * Bulk catalogue import, one JSON item per line
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ImportResult importNdjson(InputStream body) throws IOException {
+        return importService.importNdjson(body);
+    }
+
     @GetMapping("/all")
     public List<Item> getAllItem() {
         return service.getAllItems();
@@ -85,6 +128,79 @@ public class ItemController {
         return service.getWarehouseHistory();
     }
 
+    /**
+     * Warehouse history one page at a time, newest first (pass nextCursor to continue)
+     */
+    @GetMapping("/history/page")
+    public HistoryPage<WarehouseInventoryHistory> getWarehouseHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return historyQueryService.getHistoryPage(cursor, limit);
+    }
+
+    @GetMapping("/history/product/{productId}/page")
+    public HistoryPage<WarehouseInventoryHistory> getProductHistoryPage(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return historyQueryService.getProductHistoryPage(productId, cursor, limit);
+    }
+
+    /**
+     * Full warehouse history streamed as NDJSON (one JSON object per line)
+     */
+    @GetMapping(value = "/history/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportWarehouseHistory() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(historyQueryService::exportHistory);
+    }
+
+    @GetMapping(value = "/history/product/{productId}/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportProductHistory(@PathVariable Long productId) {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(out -> historyQueryService.exportProductHistory(productId, out));
+    }
+
+    /**
+     * Hourly or daily movement totals from the rollup table (from/to as ISO date-times)
+     */
+    @GetMapping("/history/rollups")
+    public List<WarehouseMovementRollup> getMovementRollups(
+            @RequestParam(defaultValue = "DAY") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String transactionType) {
+        return rollupService.getRollups(granularity, from, to, productId, transactionType);
+    }
+
+    /**
+     * Recompute the rollups from the raw history (repair after manual history edits)
+     */
+    @PostMapping("/history/rollups/rebuild")
+    public ResponseEntity<String> rebuildMovementRollups() {
+        int buckets = rollupService.rebuild();
+        return ResponseEntity.ok("✅ Rebuilt " + buckets + " rollup buckets");
+    }
+
+    /**
+     * Stock of every product as it was at the given time (ISO date-time)
+     */
+    @GetMapping("/stock/as-of")
+    public List<StockAsOf> getStockAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return snapshotService.getStockAsOf(at);
+    }
+
+    @GetMapping("/stock/as-of/product/{productId}")
+    public StockAsOf getProductStockAsOf(
+            @PathVariable Long productId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return snapshotService.getProductStockAsOf(productId, at);
+    }
+
     @GetMapping("/orders")
     public ResponseEntity<List<PendingOrder>> getOrders(
             @RequestHeader("Authorization") String authHeader) {
@@ -125,7 +241,7 @@ public class ItemController {
             
             // Send success status
             statusUpdateProducer.sendStatusUpdate(
-                new com.inventory.warehouse.dto.OrderUpdateDTO(
+                new OrderUpdateDTO(
                     orderId, 
                     "COMPLETED", 
                     "Order fulfilled by warehouse " + warehouseId, 
@@ -145,7 +261,7 @@ public class ItemController {
             
             // Send failed status
             statusUpdateProducer.sendStatusUpdate(
-                new com.inventory.warehouse.dto.OrderUpdateDTO(
+                new OrderUpdateDTO(
                     orderId, 
                     "FAILED", 
                     e.getMessage(), 
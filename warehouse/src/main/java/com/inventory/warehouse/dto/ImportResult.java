@@ -0,0 +1,20 @@
+package com.inventory.warehouse.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk item import
+ */
+@Data
+@NoArgsConstructor
+public class ImportResult {
+    private int received;  // Data rows read from the upload
+    private int created;   // New products
+    private int updated;   // Restocked existing products
+    private int rejected;  // Unparseable, invalid or failed rows
+    private List<String> errors = new ArrayList<>();  // First errors, by line
+}
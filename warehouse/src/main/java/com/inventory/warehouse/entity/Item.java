@@ -7,6 +7,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,13 +16,18 @@ import lombok.NoArgsConstructor;
 
 
 @Entity
-@Table(name = "item")
+@Table(name = "item", indexes = {
+    // One row per product name and warehouse; restocks and bulk imports upsert on it
+    @Index(name = "uk_item_warehouse_product_name", columnList = "warehouseId, productName", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Item {
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch the inserts of a bulk import
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
     private Long id;
 
     private Long warehouseId;
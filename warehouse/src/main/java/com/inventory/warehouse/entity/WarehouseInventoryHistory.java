@@ -1,22 +1,38 @@
 package com.inventory.warehouse.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.inventory.history.HistoryEntry;
+
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "warehouse_inventory_history")
+@Table(name = "warehouse_inventory_history", indexes = {
+    // Keyset pagination: newest-first scans per warehouse / per product
+    @Index(name = "idx_wih_warehouse_date_id", columnList = "warehouseId, transactionDate, id"),
+    @Index(name = "idx_wih_product_date_id", columnList = "productId, transactionDate, id"),
+    // One row per queued movement, however often the history writer retries or replays it
+    @Index(name = "uk_wih_history_key", columnList = "historyKey", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class WarehouseInventoryHistory {
+public class WarehouseInventoryHistory implements HistoryEntry {
     
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "warehouse_inventory_history_seq")
+    @SequenceGenerator(name = "warehouse_inventory_history_seq", sequenceName = "warehouse_inventory_history_seq", allocationSize = 50)
     private Long id;
+
+    // Idempotency key assigned by the history writer when the movement is queued
+    @Column(updatable = false)
+    private UUID historyKey;
     
     private Long warehouseId;
     private Long productId;  // References Item.id
@@ -37,4 +53,10 @@ public class WarehouseInventoryHistory {
     private LocalDateTime transactionDate;
     
     private String notes;
+
+    @Override
+    @JsonIgnore
+    public Long getOwnerId() {
+        return warehouseId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.inventory.warehouse.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of every product of a warehouse at snapshotAt, derived from the inventory history.
+ * As-of queries start from the nearest snapshot and replay only the history after it.
+ */
+@Entity
+@Table(name = "warehouse_stock_snapshot", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_wss_warehouse_at_product", columnNames = {"warehouseId", "snapshotAt", "productId"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseStockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long warehouseId;
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDateTime snapshotAt;  // History up to and including this instant is folded in
+
+    private long stock;
+}
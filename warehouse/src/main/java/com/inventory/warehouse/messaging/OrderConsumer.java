@@ -1,12 +1,17 @@
 package com.inventory.warehouse.messaging;
 
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.inventory.messaging.dto.OrderMessage;
 import com.inventory.warehouse.entity.PendingOrder;
 import com.inventory.warehouse.repository.PendingOrderRepository;
 import com.inventory.warehouse.service.ItemService;
@@ -30,27 +35,42 @@ public class OrderConsumer {
         this.pendingOrderRepository = pendingOrderRepository;
     }
 
-    @RabbitListener(queues = "order.routed.warehouse.${warehouse.id:1}")
-    public void consumeOrder(Map<String, Object> orderData) {
-        String orderId = (String) orderData.get("orderId");
-        Long productId = Long.valueOf(orderData.get("productId").toString());
-        int quantity = (int) orderData.get("quantity");
-        Long retailerId = Long.valueOf(orderData.get("retailerId").toString());
-
-        log.info("📦 Warehouse {} received order {}", warehouseId, orderId);
-
-        // SAVE TO DATABASE instead of processing immediately
-        PendingOrder pendingOrder = new PendingOrder();
-        pendingOrder.setOrderId(orderId);
-        pendingOrder.setProductId(productId);
-        pendingOrder.setProductName("Product-" + productId); // Or fetch from item table
-        pendingOrder.setQuantity(quantity);
-        pendingOrder.setRetailerId(retailerId);
-        pendingOrder.setWarehouseId(warehouseId);
-        pendingOrder.setReceivedAt(LocalDateTime.now());
-        
-        pendingOrderRepository.save(pendingOrder);
-        
-        log.info("✅ Order {} saved to pending orders", orderId);
+    /**
+     * Store routed orders as pending, a batch per transaction.
+     * Orders already pending (a redelivery after a crash between commit and ack) are skipped.
+     */
+    @RabbitListener(queues = "order.routed.warehouse.${warehouse.id:1}", containerFactory = "orderContainerFactory")
+    @Transactional
+    public void consumeOrders(List<OrderMessage> orders) {
+        // Shared contract records: JSON and binary bodies decode straight into them, no Map or casts
+        Set<String> seen = new HashSet<>();
+        for (PendingOrder existing : pendingOrderRepository.findByOrderIdIn(orders.stream().map(OrderMessage::orderId).toList())) {
+            seen.add(existing.getOrderId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingOrder> pending = new ArrayList<>(orders.size());
+        for (OrderMessage order : orders) {
+            if (!seen.add(order.orderId())) {
+                log.info("🔁 Order {} already pending, skipping", order.orderId());
+                continue;
+            }
+            log.info("📦 Warehouse {} received order {}", warehouseId, order.orderId());
+
+            // SAVE TO DATABASE instead of processing immediately
+            PendingOrder pendingOrder = new PendingOrder();
+            pendingOrder.setOrderId(order.orderId());
+            pendingOrder.setProductId(order.productId());
+            pendingOrder.setProductName(order.productName() != null ? order.productName() : "Product-" + order.productId());
+            pendingOrder.setQuantity(order.quantity());
+            pendingOrder.setRetailerId(order.retailerId());
+            pendingOrder.setWarehouseId(warehouseId);
+            pendingOrder.setReceivedAt(now);
+            pending.add(pendingOrder);
+        }
+
+        pendingOrderRepository.saveAll(pending);
+
+        log.info("✅ {} orders saved to pending orders", pending.size());
     }
 }
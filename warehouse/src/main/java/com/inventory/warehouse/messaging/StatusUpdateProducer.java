@@ -1,8 +1,13 @@
 package com.inventory.warehouse.messaging;
 
+import java.util.UUID;
+
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
+
+import com.inventory.messaging.dto.OrderUpdateDTO;
 import com.inventory.warehouse.config.RabbitMQConfig;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -14,11 +19,16 @@ public class StatusUpdateProducer {
         this.rabbitTemplate = rabbitTemplate;
     }
 
-    public void sendStatusUpdate(Object orderStatusUpdate) {
+    public void sendStatusUpdate(OrderUpdateDTO orderStatusUpdate) {
         rabbitTemplate.convertAndSend(
             RabbitMQConfig.STATUS_UPDATE_EXCHANGE,
             RabbitMQConfig.STATUS_UPDATE_ROUTING_KEY,
-            orderStatusUpdate
+            orderStatusUpdate,
+            // Unique id per send lets order-service drop broker redeliveries
+            message -> {
+                message.getMessageProperties().setMessageId(UUID.randomUUID().toString());
+                return message;
+            }
         );
         log.info("📨 Sent status update for order to exchange: {}", RabbitMQConfig.STATUS_UPDATE_EXCHANGE);
     }
@@ -0,0 +1,50 @@
+package com.inventory.warehouse.messaging;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.inventory.messaging.dto.StockResyncRequest;
+import com.inventory.warehouse.entity.Item;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@Slf4j
+public class StockResyncConsumer {
+
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    private final StockUpdateProducer stockUpdateProducer;
+
+    @Value("${warehouse.id:1}")
+    private Long warehouseId;
+
+    public StockResyncConsumer(StockUpdateProducer stockUpdateProducer) {
+        this.stockUpdateProducer = stockUpdateProducer;
+    }
+
+    /**
+     * Stream this warehouse's full stock back to order-service, one page per message
+     */
+    @RabbitListener(queues = "warehouse.resync.${warehouse.id:1}", containerFactory = "stockResyncContainerFactory")
+    public void handleResync(StockResyncRequest request) {
+        int pageSize = Math.min(Math.max(request.pageSize(), 1), MAX_PAGE_SIZE);
+        log.info("🔄 Warehouse {} streaming stock for resync {}", warehouseId, request.requestId());
+
+        Pageable pageable = PageRequest.of(0, pageSize, Sort.by("id"));
+        int items = 0;
+        Slice<Item> slice;
+        do {
+            slice = stockUpdateProducer.sendStockPage(request.requestId(), pageable);
+            items += slice.getNumberOfElements();
+            pageable = slice.nextPageable();
+        } while (slice.hasNext());
+
+        log.info("✅ Warehouse {} sent {} items in {} pages", warehouseId, items, slice.getNumber() + 1);
+    }
+}
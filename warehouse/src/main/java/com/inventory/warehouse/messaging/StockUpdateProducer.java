@@ -1,45 +1,217 @@
 package com.inventory.warehouse.messaging;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.inventory.warehouse.dto.StockUpdateMessage;
+import com.inventory.messaging.dto.StockPageMessage;
+import com.inventory.messaging.dto.StockUpdateBatch;
+import com.inventory.messaging.dto.StockUpdateMessage;
+import com.inventory.warehouse.config.RabbitMQConfig;
+import com.inventory.warehouse.entity.Item;
+import com.inventory.warehouse.repository.ItemRepository;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Publishes this warehouse's stock to order-service.
+ *
+ * Stock changes only mark the product dirty once their transaction commits; a background
+ * flush sends all dirty products as one StockUpdateBatch every flush-interval-ms, or as soon
+ * as flush-max-items products are dirty. A product sold a thousand times between two flushes
+ * costs one entry, and a rolled-back change is never published. The flush reads the current
+ * stock from the database, so the newest committed value always wins regardless of the order
+ * in which concurrent transactions committed.
+ */
 @Component
 @Slf4j
 public class StockUpdateProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final ItemRepository itemRepository;
 
     @Value("${warehouse.id}")
     private Long warehouseId;
 
     private static final String EXCHANGE = "warehouse.exchange";
-    private static final String ROUTING_KEY = "warehouse.stock.update";
 
-    public StockUpdateProducer(RabbitTemplate rabbitTemplate) {
+    // Hybrid clock: wall-clock millis in the high bits, a counter in the low 10 bits.
+    // Strictly increasing per warehouse, and still ahead of the old values after a restart.
+    private final AtomicLong version = new AtomicLong();
+
+    private final int batchMaxItems;
+    private final long flushIntervalMs;
+    private final int flushMaxItems;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    // Products changed since the last flush, guarded by itself
+    private final Set<Long> dirty = new LinkedHashSet<>();
+
+    public StockUpdateProducer(RabbitTemplate rabbitTemplate,
+                               ItemRepository itemRepository,
+                               @Value("${stock.updates.batch-max-items:5000}") int batchMaxItems,
+                               @Value("${stock.updates.flush-interval-ms:200}") long flushIntervalMs,
+                               @Value("${stock.updates.flush-max-items:500}") int flushMaxItems) {
         this.rabbitTemplate = rabbitTemplate;
+        this.itemRepository = itemRepository;
+        this.batchMaxItems = batchMaxItems;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushMaxItems = flushMaxItems;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Send stock update message to RabbitMQ
+     * Publish the product's stock with the next batch, once the current transaction commits
      */
-    public void sendStockUpdate(Long productId, String productName, int newStock, float price) {
-        
-        StockUpdateMessage message = new StockUpdateMessage(
-            warehouseId,
-            productId,
-            productName,
-            newStock,
-            price
-        );
-
-        rabbitTemplate.convertAndSend(EXCHANGE, ROUTING_KEY, message);
-        
-        log.info("📤 [Warehouse-" + warehouseId + "] Sent stock update: Product " + 
-                          productId + " now has " + newStock + " units");
-    }
-}
\ No newline at end of file
+    public void markDirty(Long productId) {
+        markDirty(List.of(productId));
+    }
+
+    public void markDirty(Collection<Long> productIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addDirty(productIds);
+                }
+            });
+        } else {
+            addDirty(productIds);
+        }
+    }
+
+    private void addDirty(Collection<Long> productIds) {
+        boolean full;
+        synchronized (dirty) {
+            dirty.addAll(productIds);
+            full = dirty.size() >= flushMaxItems;
+        }
+        // Flush early rather than let a burst wait for the interval; one queued flush is enough
+        if (full && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Send the current stock of every dirty product, batch-max-items per message.
+     * Runs on the broadcaster thread only, so versions follow the order of the reads.
+     */
+    private void flush() {
+        flushQueued.set(false);
+        List<Long> productIds;
+        synchronized (dirty) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            productIds = new ArrayList<>(dirty);
+            dirty.clear();
+        }
+        for (int from = 0; from < productIds.size(); from += batchMaxItems) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + batchMaxItems, productIds.size()));
+            try {
+                sendBatch(itemRepository.findAllById(chunk));
+            } catch (RuntimeException e) {
+                // Keep the rest dirty, the next flush tries again
+                synchronized (dirty) {
+                    dirty.addAll(productIds.subList(from, productIds.size()));
+                }
+                log.error("❌ Stock broadcast of {} products failed: {}", productIds.size() - from, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        // Last changes before shutdown still reach order-service
+        flush();
+    }
+
+    /**
+     * Read and send one page of this warehouse's full stock in reply to a resync request.
+     * The read and the versions happen on the broadcaster thread like a flush, so a page read
+     * before a concurrent change always carries an older version than the batch with that change.
+     */
+    public Slice<Item> sendStockPage(String requestId, Pageable pageable) {
+        Future<Slice<Item>> sent = flusher.submit(() -> {
+            Slice<Item> slice = itemRepository.findByWarehouseId(warehouseId, pageable);
+            List<StockUpdateMessage> messages = new ArrayList<>(slice.getNumberOfElements());
+            for (Item item : slice) {
+                messages.add(new StockUpdateMessage(
+                    warehouseId,
+                    item.getId(),
+                    item.getProductName(),
+                    item.getStockOnHand(),
+                    item.getPrice(),
+                    nextVersion()
+                ));
+            }
+            rabbitTemplate.convertAndSend(EXCHANGE, RabbitMQConfig.STOCK_PAGE_ROUTING_KEY,
+                    new StockPageMessage(requestId, warehouseId, slice.getNumber(), !slice.hasNext(), messages));
+            return slice;
+        });
+        try {
+            return sent.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending stock page " + pageable.getPageNumber(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Stock page " + pageable.getPageNumber() + " failed", e.getCause());
+        }
+    }
+
+    private void sendBatch(List<Item> items) {
+        List<StockUpdateMessage> messages = new ArrayList<>(items.size());
+        for (Item item : items) {
+            messages.add(new StockUpdateMessage(
+                warehouseId,
+                item.getId(),
+                item.getProductName(),
+                item.getStockOnHand(),
+                item.getPrice(),
+                nextVersion()
+            ));
+        }
+        rabbitTemplate.convertAndSend(EXCHANGE, RabbitMQConfig.STOCK_BATCH_ROUTING_KEY,
+                new StockUpdateBatch(warehouseId, messages));
+        log.info("📤 [Warehouse-{}] Sent stock update batch of {} products", warehouseId, messages.size());
+    }
+
+    private long nextVersion() {
+        return version.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis() << 10));
+    }
+}
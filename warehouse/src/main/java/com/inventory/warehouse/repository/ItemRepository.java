@@ -1,14 +1,53 @@
 package com.inventory.warehouse.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.inventory.warehouse.entity.Item;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item,Long> {
-    Optional<Item> findByProductName(String productName);
     Iterable<Item> findItemsByWarehouseId(Long warehouseId);
+    Slice<Item> findByWarehouseId(Long warehouseId, Pageable pageable);
+
+    // Take quantity out of stock only if enough is left, in one statement; empty if it was not
+    @Query(value = "UPDATE {h-schema}item SET stock_on_hand = stock_on_hand - :quantity"
+            + " WHERE id = :id AND stock_on_hand >= :quantity"
+            + " RETURNING id, warehouse_id AS \"warehouseId\", product_name AS \"productName\", price,"
+            + " stock_on_hand AS \"stockOnHand\"", nativeQuery = true)
+    Optional<StockLevel> decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Create or restock products (a JSON array of {productName, price, stockOnHand}) in one statement.
+    // Concurrent imports and createItem calls meet on the unique (warehouse_id, product_name) index
+    // instead of inserting duplicates; rows are taken in name order so they cannot deadlock.
+    // A restocked row still draws an id from the sequence, which only leaves a gap.
+    @Query(value = "INSERT INTO {h-schema}item AS i (id, warehouse_id, product_name, price, stock_on_hand)"
+            + " SELECT nextval('{h-schema}item_seq'), :warehouseId, r.\"productName\", r.price, r.\"stockOnHand\""
+            + " FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(\"productName\" text, price real, \"stockOnHand\" int)"
+            + " ORDER BY r.\"productName\""
+            + " ON CONFLICT (warehouse_id, product_name) DO UPDATE"
+            + " SET stock_on_hand = i.stock_on_hand + EXCLUDED.stock_on_hand, price = EXCLUDED.price"
+            + " RETURNING i.id, i.warehouse_id AS \"warehouseId\", i.product_name AS \"productName\", i.price,"
+            + " i.stock_on_hand AS \"stockOnHand\", (i.xmax = 0) AS \"created\"", nativeQuery = true)
+    List<UpsertedItem> upsertStock(@Param("warehouseId") Long warehouseId, @Param("rows") String rows);
+
+    interface StockLevel {
+        Long getId();
+        Long getWarehouseId();
+        String getProductName();
+        float getPrice();
+        int getStockOnHand();
+    }
+
+    interface UpsertedItem extends StockLevel {
+        // False when an existing product was restocked
+        boolean getCreated();
+    }
 }
@@ -1,5 +1,6 @@
 package com.inventory.warehouse.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,5 +10,6 @@ import com.inventory.warehouse.entity.PendingOrder;
 
 public interface PendingOrderRepository extends JpaRepository<PendingOrder, Long> {
     Optional<PendingOrder> findByOrderId(String orderId);
+    List<PendingOrder> findByOrderIdIn(Collection<String> orderIds);
     List<PendingOrder> findByWarehouseId(Long warehouseId);
 }
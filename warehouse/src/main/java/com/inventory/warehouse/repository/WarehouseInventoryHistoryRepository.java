@@ -1,13 +1,27 @@
 package com.inventory.warehouse.repository;
 
+import com.inventory.history.HistoryRepository;
 import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface WarehouseInventoryHistoryRepository extends JpaRepository<WarehouseInventoryHistory, Long> {
+public interface WarehouseInventoryHistoryRepository extends JpaRepository<WarehouseInventoryHistory, Long>,
+        HistoryRepository<WarehouseInventoryHistory> {
     
     // Find all history for a specific product
     List<WarehouseInventoryHistory> findByProductIdOrderByTransactionDateDesc(Long productId);
@@ -18,8 +32,60 @@ public interface WarehouseInventoryHistoryRepository extends JpaRepository<Wareh
     // Find all sales (SOLD transactions)
     List<WarehouseInventoryHistory> findByTransactionTypeOrderByTransactionDateDesc(String transactionType);
     
+    @Override
+    @Query("SELECT h.historyKey FROM WarehouseInventoryHistory h WHERE h.historyKey IN :keys")
+    List<UUID> findStoredKeys(@Param("keys") Collection<UUID> keys);
+
+    // Keyset pages, newest first: the first page, then everything strictly older than the cursor
+    @Override
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<WarehouseInventoryHistory> findOwnerPage(@Param("warehouseId") Long warehouseId, Pageable pageable);
+
+    @Override
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId"
+            + " AND (h.transactionDate < :date OR (h.transactionDate = :date AND h.id < :id))"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<WarehouseInventoryHistory> findOwnerPageBefore(@Param("warehouseId") Long warehouseId,
+            @Param("date") LocalDateTime date, @Param("id") Long id, Pageable pageable);
+
+    // Product ids are warehouse-local (Item.id), the warehouse filter only keeps the shared contract
+    @Override
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId AND h.productId = :productId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<WarehouseInventoryHistory> findProductPage(@Param("warehouseId") Long warehouseId,
+            @Param("productId") Long productId, Pageable pageable);
+
+    @Override
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId AND h.productId = :productId"
+            + " AND (h.transactionDate < :date OR (h.transactionDate = :date AND h.id < :id))"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    List<WarehouseInventoryHistory> findProductPageBefore(@Param("warehouseId") Long warehouseId,
+            @Param("productId") Long productId, @Param("date") LocalDateTime date, @Param("id") Long id,
+            Pageable pageable);
+
+    // Server-side cursor for exports: rows arrive fetch-size at a time instead of all at once
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    Stream<WarehouseInventoryHistory> streamOwnerHistory(@Param("warehouseId") Long warehouseId);
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h FROM WarehouseInventoryHistory h WHERE h.warehouseId = :warehouseId AND h.productId = :productId"
+            + " ORDER BY h.transactionDate DESC, h.id DESC")
+    Stream<WarehouseInventoryHistory> streamProductHistory(@Param("warehouseId") Long warehouseId,
+            @Param("productId") Long productId);
+    
     // Find history by product and warehouse
     List<WarehouseInventoryHistory> findByProductIdAndWarehouseIdOrderByTransactionDateDesc(
         Long productId, Long warehouseId
     );
-}
\ No newline at end of file
+
+    // Keeps history inserts out while rollups or snapshots are computed from it
+    @Override
+    @Modifying
+    @Query(value = "LOCK TABLE {h-schema}warehouse_inventory_history IN SHARE MODE", nativeQuery = true)
+    void lockHistory();
+}
@@ -0,0 +1,25 @@
+package com.inventory.warehouse.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventory.history.HistoryQueries;
+import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import com.inventory.warehouse.repository.WarehouseInventoryHistoryRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Keyset pages and NDJSON exports of this warehouse's inventory history
+ */
+@Service
+public class HistoryQueryService extends HistoryQueries<WarehouseInventoryHistory> {
+
+    public HistoryQueryService(WarehouseInventoryHistoryRepository historyRepository,
+                               EntityManager entityManager,
+                               ObjectMapper objectMapper,
+                               @Value("${warehouse.id}") Long warehouseId) {
+        super(historyRepository, entityManager, objectMapper, warehouseId);
+    }
+}
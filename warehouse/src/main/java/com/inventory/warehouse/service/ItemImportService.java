@@ -0,0 +1,251 @@
+package com.inventory.warehouse.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inventory.warehouse.dto.ImportResult;
+import com.inventory.warehouse.entity.Item;
+import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import com.inventory.warehouse.messaging.StockUpdateProducer;
+import com.inventory.warehouse.repository.ItemRepository;
+import com.inventory.warehouse.repository.ItemRepository.UpsertedItem;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk catalogue import from CSV or NDJSON uploads. Same semantics as createItem
+ * (existing product name = restock, otherwise a new product), but per chunk of rows:
+ * one upsert statement, batched history, and batched stock-update messages instead of
+ * a message per item.
+ */
+@Service
+@Slf4j
+public class ItemImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final ItemRepository repository;
+    private final InventoryHistoryWriter historyWriter;
+    private final StockUpdateProducer stockUpdateProducer;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Value("${warehouse.id}")
+    private Long warehouseId;
+
+    public ItemImportService(ItemRepository repository,
+                             InventoryHistoryWriter historyWriter,
+                             StockUpdateProducer stockUpdateProducer,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${item.import.batch-size:1000}") int batchSize) {
+        this.repository = repository;
+        this.historyWriter = historyWriter;
+        this.stockUpdateProducer = stockUpdateProducer;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * CSV with a header row naming the columns productName, price and stockOnHand (any order)
+     */
+    public ImportResult importCsv(InputStream in) throws IOException {
+        return importItems(in, true);
+    }
+
+    /**
+     * One JSON item per line: {"productName": "...", "price": 1.5, "stockOnHand": 10}
+     */
+    public ImportResult importNdjson(InputStream in) throws IOException {
+        return importItems(in, false);
+    }
+
+    private ImportResult importItems(InputStream in, boolean csv) throws IOException {
+        ImportResult result = new ImportResult();
+        List<Item> chunk = new ArrayList<>(batchSize);
+        Map<String, Integer> columns = null;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (csv && columns == null) {
+                    columns = csvHeader(line);
+                    continue;
+                }
+                result.setReceived(result.getReceived() + 1);
+                try {
+                    Item row = csv ? parseCsvRow(line, columns) : objectMapper.readValue(line, Item.class);
+                    validate(row);
+                    chunk.add(row);
+                } catch (IOException | RuntimeException e) {
+                    reject(result, 1, "Line " + lineNumber + ": " + e.getMessage());
+                }
+                if (chunk.size() == batchSize) {
+                    importChunk(chunk, lineNumber, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, lineNumber, result);
+            }
+        }
+
+        log.info("✅ [Warehouse-{}] Imported {} rows: {} created, {} restocked, {} rejected",
+                warehouseId, result.getReceived(), result.getCreated(), result.getUpdated(), result.getRejected());
+        return result;
+    }
+
+    /**
+     * Upsert one chunk in one transaction; a failing chunk is reported and the import goes on
+     */
+    private void importChunk(List<Item> rows, int lastLine, ImportResult result) {
+        // The same product twice in a chunk: quantities add up and the last price wins, like repeated createItem calls
+        Map<String, Item> byName = new LinkedHashMap<>();
+        for (Item row : rows) {
+            byName.merge(row.getProductName(), row, (first, next) ->
+                    new Item(null, null, first.getProductName(), next.getPrice(), first.getStockOnHand() + next.getStockOnHand()));
+        }
+
+        int[] counts = new int[2];
+        try {
+            String json = objectMapper.writeValueAsString(byName.values());
+            transactionTemplate.executeWithoutResult(status -> {
+                // One INSERT ... ON CONFLICT for the whole chunk, so a concurrent import or createItem
+                // of the same name restocks the same row instead of adding a second one
+                List<UpsertedItem> stored = repository.upsertStock(warehouseId, json);
+                for (UpsertedItem item : stored) {
+                    int quantityAdded = byName.get(item.getProductName()).getStockOnHand();
+                    counts[item.getCreated() ? 0 : 1]++;
+                    historyWriter.append(history(item, quantityAdded, item.getCreated()
+                            ? "Initial stock (bulk import)" : "Restocked inventory (bulk import)"));
+                }
+                // The whole chunk goes out in the broadcaster's next batch, after commit
+                stockUpdateProducer.markDirty(stored.stream().map(UpsertedItem::getId).toList());
+            });
+            result.setCreated(result.getCreated() + counts[0]);
+            result.setUpdated(result.getUpdated() + counts[1]);
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Import chunk ending at line {} failed: {}", lastLine, e.getMessage());
+            reject(result, rows.size(), "Rows up to line " + lastLine + " failed: " + e.getMessage());
+        }
+    }
+
+    private WarehouseInventoryHistory history(UpsertedItem item, int quantityAdded, String notes) {
+        WarehouseInventoryHistory history = new WarehouseInventoryHistory();
+        history.setWarehouseId(warehouseId);
+        history.setProductId(item.getId());
+        history.setProductName(item.getProductName());
+        history.setTransactionType("ADDED");
+        history.setQuantity(quantityAdded);
+        history.setPriceAtTransaction(item.getPrice());
+        history.setStockBefore(item.getStockOnHand() - quantityAdded);
+        history.setStockAfter(item.getStockOnHand());
+        history.setTransactionDate(LocalDateTime.now());
+        history.setNotes(notes);
+        return history;
+    }
+
+    private static void validate(Item row) {
+        if (row.getProductName() == null || row.getProductName().isBlank()) {
+            throw new IllegalArgumentException("productName is required");
+        }
+        if (row.getStockOnHand() < 0 || row.getPrice() < 0) {
+            throw new IllegalArgumentException("price and stockOnHand must not be negative");
+        }
+        row.setProductName(row.getProductName().trim());
+    }
+
+    private static void reject(ImportResult result, int rows, String error) {
+        result.setRejected(result.getRejected() + rows);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(error);
+        }
+    }
+
+    private static Map<String, Integer> csvHeader(String line) {
+        List<String> names = splitCsv(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("productname", "price", "stockonhand")) {
+            if (!columns.containsKey(required)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV header must name productName, price and stockOnHand");
+            }
+        }
+        return columns;
+    }
+
+    private static Item parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsv(line);
+        Item row = new Item();
+        row.setProductName(field(fields, columns.get("productname")));
+        row.setPrice(Float.parseFloat(field(fields, columns.get("price")).trim()));
+        row.setStockOnHand(Integer.parseInt(field(fields, columns.get("stockonhand")).trim()));
+        return row;
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            throw new IllegalArgumentException("expected at least " + (index + 1) + " columns");
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * Split one CSV line; fields may be quoted, with "" for a literal quote
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
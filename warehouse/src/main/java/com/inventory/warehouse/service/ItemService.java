@@ -6,10 +6,14 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.inventory.warehouse.entity.Item;
 import com.inventory.warehouse.entity.WarehouseInventoryHistory;
 import com.inventory.warehouse.messaging.StockUpdateProducer;
 import com.inventory.warehouse.repository.ItemRepository;
+import com.inventory.warehouse.repository.ItemRepository.StockLevel;
+import com.inventory.warehouse.repository.ItemRepository.UpsertedItem;
 import com.inventory.warehouse.repository.WarehouseInventoryHistoryRepository;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -23,6 +27,8 @@ public class ItemService {
     private final WarehouseInventoryHistoryRepository historyRepository;
     private final StockUpdateProducer stockUpdateProducer;
     private final AuthService authService;
+    private final InventoryHistoryWriter historyWriter;
+    private final ObjectMapper objectMapper;
 
     @Value("${warehouse.id}")
     private Long warehouseId;
@@ -30,11 +36,14 @@ public class ItemService {
     public ItemService(
             ItemRepository repository, 
             WarehouseInventoryHistoryRepository historyRepository,
-            StockUpdateProducer stockUpdateProducer, AuthService authService) {
+            StockUpdateProducer stockUpdateProducer, AuthService authService,
+            InventoryHistoryWriter historyWriter, ObjectMapper objectMapper) {
         this.repository = repository;
         this.historyRepository = historyRepository;
         this.stockUpdateProducer = stockUpdateProducer;
         this.authService = authService;
+        this.historyWriter = historyWriter;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -43,93 +52,52 @@ public class ItemService {
     @org.springframework.context.event.EventListener(org.springframework.boot.context.event.ApplicationReadyEvent.class)
     public void broadcastStockOnStartup() {
         log.info("🚀 System ready. Broadcasting initial stock for Warehouse {}...", warehouseId);
-        List<Item> items = repository.findAll();
-        for (Item item : items) {
-            stockUpdateProducer.sendStockUpdate(
-                item.getId(),
-                item.getProductName(),
-                item.getStockOnHand(),
-                item.getPrice()
-            );
-        }
-        log.info("✅ Broadcasted {} items.", items.size());
+        List<Long> productIds = repository.findAll().stream().map(Item::getId).toList();
+        stockUpdateProducer.markDirty(productIds);
+        log.info("✅ Queued {} items for broadcast.", productIds.size());
     }
 
     @Transactional
     public Item createItem(Item item) {
         item.setWarehouseId(warehouseId);
-        
-        return repository.findByProductName(item.getProductName())
-                .map(existingItem -> {
-                    // Item exists - add to stock
-                    int stockBefore = existingItem.getStockOnHand();
-                    int quantityAdded = item.getStockOnHand();
-                    int stockAfter = stockBefore + quantityAdded;
-                    
-                    existingItem.setStockOnHand(stockAfter);
-                    existingItem.setPrice(item.getPrice());
-                    Item saved = repository.save(existingItem);
-                    
-                    // Record history
-                    recordHistory(
-                        saved.getId(),
-                        saved.getProductName(),
-                        "ADDED",
-                        quantityAdded,
-                        saved.getPrice(),
-                        stockBefore,
-                        stockAfter,
-                        null,
-                        "Restocked inventory"
-                    );
-                    
-                    // Send update to RabbitMQ
-                    stockUpdateProducer.sendStockUpdate(
-                        saved.getId(),
-                        saved.getProductName(),
-                        saved.getStockOnHand(),
-                        saved.getPrice()
-                    );
-                    
-                    log.info("✅ Added " + quantityAdded + " units. Stock: " + 
-                                      stockBefore + " → " + stockAfter);
-                    
-                    return saved;
-                })
-                .orElseGet(() -> {
-                    // New item
-                    Item newItem = new Item();
-                    newItem.setProductName(item.getProductName());
-                    newItem.setPrice(item.getPrice());
-                    newItem.setStockOnHand(item.getStockOnHand());
-                    newItem.setWarehouseId(warehouseId);
-                    Item saved = repository.save(newItem);
-                    
-                    // Record history
-                    recordHistory(
-                        saved.getId(),
-                        saved.getProductName(),
-                        "ADDED",
-                        saved.getStockOnHand(),
-                        saved.getPrice(),
-                        0,
-                        saved.getStockOnHand(),
-                        null,
-                        "Initial stock"
-                    );
-                    
-                    // Send update to RabbitMQ
-                    stockUpdateProducer.sendStockUpdate(
-                        saved.getId(),
-                        saved.getProductName(),
-                        saved.getStockOnHand(),
-                        saved.getPrice()
-                    );
-                    
-                    log.info("✅ Created new product with " + saved.getStockOnHand() + " units");
-                    
-                    return saved;
-                });
+
+        // Create or restock in one upsert, so a concurrent import of the same name cannot add a second row
+        UpsertedItem saved = repository.upsertStock(warehouseId, toJson(List.of(item))).get(0);
+        int quantityAdded = item.getStockOnHand();
+        int stockBefore = saved.getStockOnHand() - quantityAdded;
+
+        // Record history
+        recordHistory(
+            saved.getId(),
+            saved.getProductName(),
+            "ADDED",
+            quantityAdded,
+            saved.getPrice(),
+            stockBefore,
+            saved.getStockOnHand(),
+            null,
+            saved.getCreated() ? "Initial stock" : "Restocked inventory"
+        );
+
+        // Publish the new stock once the transaction commits
+        stockUpdateProducer.markDirty(saved.getId());
+
+        if (saved.getCreated()) {
+            log.info("✅ Created new product with " + saved.getStockOnHand() + " units");
+        } else {
+            log.info("✅ Added " + quantityAdded + " units. Stock: " +
+                              stockBefore + " → " + saved.getStockOnHand());
+        }
+
+        return new Item(saved.getId(), warehouseId, saved.getProductName(), saved.getPrice(), saved.getStockOnHand());
+    }
+
+    private String toJson(List<Item> items) {
+        try {
+            return objectMapper.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Item cannot be serialized: " + e.getMessage(), e);
+        }
     }
 
     public Item findItem(Long id) {
@@ -144,18 +112,15 @@ public class ItemService {
     @Transactional
     public Item sellItem(Long retailerId, Long itemId, int quantity) {
 
-        Item item = repository.findById(itemId)
-                .orElseThrow(() -> new RuntimeException("Item not found"));
+        // Conditional decrement: concurrent sales serialise on the row and can never oversell
+        StockLevel level = repository.decrementStock(itemId, quantity)
+                .orElseThrow(() -> repository.existsById(itemId)
+                        ? new RuntimeException("Insufficient stock")
+                        : new RuntimeException("Item not found"));
 
-        if (item.getStockOnHand() < quantity) {
-            throw new RuntimeException("Insufficient stock");
-        }
-        
-        int stockBefore = item.getStockOnHand();
-        int stockAfter = stockBefore - quantity;
-        
-        item.setStockOnHand(stockAfter);
-        Item saved = repository.save(item);
+        int stockAfter = level.getStockOnHand();
+        int stockBefore = stockAfter + quantity;
+        Item saved = new Item(level.getId(), level.getWarehouseId(), level.getProductName(), level.getPrice(), stockAfter);
         
         // Record history
         recordHistory(
@@ -170,13 +135,8 @@ public class ItemService {
             "Sold to Retailer " + retailerId
         );
         
-        // Send stock update to RabbitMQ
-        stockUpdateProducer.sendStockUpdate(
-            saved.getId(),
-            saved.getProductName(),
-            saved.getStockOnHand(),
-            saved.getPrice()
-        );
+        // Publish the new stock once the transaction commits
+        stockUpdateProducer.markDirty(saved.getId());
         
         log.info("✅ [Warehouse-" + warehouseId + "] Sold " + quantity + 
                           " units of " + saved.getProductName() + 
@@ -213,13 +173,8 @@ public class ItemService {
             difference > 0 ? "Stock increased" : "Stock decreased"
         );
         
-        // Send update to RabbitMQ
-        stockUpdateProducer.sendStockUpdate(
-            saved.getId(),
-            saved.getProductName(),
-            saved.getStockOnHand(),
-            saved.getPrice()
-        );
+        // Publish the new stock once the transaction commits
+        stockUpdateProducer.markDirty(saved.getId());
         
         log.info("✅ Updated product. Stock: " + stockBefore + " → " + stockAfter);
         
@@ -267,6 +222,6 @@ public class ItemService {
         history.setTransactionDate(LocalDateTime.now());
         history.setNotes(notes);
         
-        historyRepository.save(history);
+        historyWriter.append(history);
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.inventory.warehouse.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.inventory.history.MovementRollups;
+import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import com.inventory.warehouse.entity.WarehouseMovementRollup;
+import com.inventory.warehouse.repository.WarehouseInventoryHistoryRepository;
+import com.inventory.warehouse.repository.WarehouseMovementRollupRepository;
+
+/**
+ * Hourly and daily movement totals per (warehouse, product, transactionType)
+ */
+@Service
+public class MovementRollupService extends MovementRollups<WarehouseInventoryHistory, WarehouseMovementRollup> {
+
+    public MovementRollupService(WarehouseMovementRollupRepository rollupRepository,
+                                 WarehouseInventoryHistoryRepository historyRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${warehouse.id}") Long warehouseId) {
+        super(rollupRepository, historyRepository, transactionManager, warehouseId);
+    }
+}
@@ -0,0 +1,26 @@
+package com.inventory.warehouse.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.inventory.history.StockSnapshots;
+import com.inventory.warehouse.entity.WarehouseInventoryHistory;
+import com.inventory.warehouse.repository.WarehouseInventoryHistoryRepository;
+import com.inventory.warehouse.repository.WarehouseStockSnapshotRepository;
+
+/**
+ * Periodic stock snapshots of this warehouse and as-of stock queries
+ */
+@Service
+public class StockSnapshotService extends StockSnapshots<WarehouseInventoryHistory> {
+
+    public StockSnapshotService(WarehouseStockSnapshotRepository snapshotRepository,
+                                WarehouseInventoryHistoryRepository historyRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${warehouse.id}") Long warehouseId,
+                                @Value("${stock.snapshot.settle-ms:60000}") long settleMs,
+                                @Value("${stock.snapshot.retention-days:90}") int retentionDays) {
+        super(snapshotRepository, historyRepository, transactionManager, warehouseId, settleMs, retentionDays);
+    }
+}
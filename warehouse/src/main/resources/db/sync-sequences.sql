@@ -0,0 +1,9 @@
+-- Ids moved from IDENTITY to pooled sequences (allocationSize 50), which ddl-auto=update creates at 1.
+-- Runs after the schema update on every start: a sequence behind the existing ids is moved past them,
+-- one that is already ahead is left alone.
+
+SELECT setval('warehouse_schema.item_seq', (SELECT MAX(id) FROM warehouse_schema.item) + 50)
+WHERE (SELECT last_value FROM warehouse_schema.item_seq) < (SELECT COALESCE(MAX(id), 0) FROM warehouse_schema.item);
+
+SELECT setval('warehouse_schema.warehouse_inventory_history_seq', (SELECT MAX(id) FROM warehouse_schema.warehouse_inventory_history) + 50)
+WHERE (SELECT last_value FROM warehouse_schema.warehouse_inventory_history_seq) < (SELECT COALESCE(MAX(id), 0) FROM warehouse_schema.warehouse_inventory_history);